@@ -0,0 +1,115 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Vertical list of horizontal card carousels, each wrapped in a {@link SwipeHRefreshLayout},
+ * for the benchmark activity.
+ */
+class CarouselAdapter extends RecyclerView.Adapter<CarouselAdapter.CarouselHolder> {
+    private final RecyclerView.RecycledViewPool mCardPool = new RecyclerView.RecycledViewPool();
+    private final RefreshCoordinator mCoordinator;
+    private final String mGroupKey;
+    private final int mCarouselCount;
+    private final int mCardCount;
+
+    CarouselAdapter(@NonNull RefreshCoordinator coordinator, @NonNull String groupKey,
+            int carouselCount, int cardCount) {
+        mCoordinator = coordinator;
+        mGroupKey = groupKey;
+        mCarouselCount = carouselCount;
+        mCardCount = cardCount;
+    }
+
+    @NonNull
+    @Override
+    public CarouselHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        final View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_carousel, parent, false);
+        return new CarouselHolder(view, mCoordinator, mGroupKey, mCardPool, mCardCount);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull CarouselHolder holder, int position) {
+        holder.mCards.setCarousel(position);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull CarouselHolder holder) {
+        // The refresh belonged to the carousel that was shown before
+        holder.mRefreshLayout.setRefreshing(false);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mCarouselCount;
+    }
+
+    static class CarouselHolder extends RecyclerView.ViewHolder {
+        final SwipeHRefreshLayout mRefreshLayout;
+        final CardAdapter mCards;
+
+        CarouselHolder(@NonNull View itemView, @NonNull RefreshCoordinator coordinator,
+                @NonNull String groupKey, @NonNull RecyclerView.RecycledViewPool cardPool,
+                int cardCount) {
+            super(itemView);
+            mRefreshLayout = itemView.findViewById(R.id.refresh_layout);
+            mRefreshLayout.setRefreshCoordinator(coordinator, groupKey);
+            final RecyclerView cards = itemView.findViewById(R.id.cards);
+            cards.setLayoutManager(new LinearLayoutManager(itemView.getContext(),
+                    LinearLayoutManager.HORIZONTAL, false));
+            cards.setRecycledViewPool(cardPool);
+            cards.setHasFixedSize(true);
+            mCards = new CardAdapter(cardCount);
+            cards.setAdapter(mCards);
+        }
+    }
+
+    static class CardAdapter extends RecyclerView.Adapter<CardAdapter.CardHolder> {
+        private final int mCardCount;
+        private int mCarousel;
+
+        CardAdapter(int cardCount) {
+            mCardCount = cardCount;
+        }
+
+        void setCarousel(int carousel) {
+            mCarousel = carousel;
+            notifyDataSetChanged();
+        }
+
+        @NonNull
+        @Override
+        public CardHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return new CardHolder((TextView) LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_card, parent, false));
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull CardHolder holder, int position) {
+            holder.mTitle.setText(holder.mTitle.getResources()
+                    .getString(R.string.card_title, mCarousel, position));
+        }
+
+        @Override
+        public int getItemCount() {
+            return mCardCount;
+        }
+
+        static class CardHolder extends RecyclerView.ViewHolder {
+            final TextView mTitle;
+
+            CardHolder(@NonNull TextView itemView) {
+                super(itemView);
+                mTitle = itemView;
+            }
+        }
+    }
+}
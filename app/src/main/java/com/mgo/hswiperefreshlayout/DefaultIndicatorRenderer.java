@@ -0,0 +1,179 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Default {@link IndicatorRenderer}, drawing the material ring and arrowhead.
+ * <p>
+ * Unlike CircularProgressDrawable the arc bounds and the arrow path are built once per size;
+ * drawing only transforms the canvas.
+ */
+public class DefaultIndicatorRenderer implements IndicatorRenderer {
+    // Maps to ProgressBar.Large style
+    private static final float CENTER_RADIUS_LARGE = 11f;
+    private static final float STROKE_WIDTH_LARGE = 3f;
+    private static final int ARROW_WIDTH_LARGE = 12;
+    private static final int ARROW_HEIGHT_LARGE = 6;
+
+    // Maps to ProgressBar default style
+    private static final float CENTER_RADIUS = 7.5f;
+    private static final float STROKE_WIDTH = 2.5f;
+    private static final int ARROW_WIDTH = 10;
+    private static final int ARROW_HEIGHT = 5;
+
+    private final Paint mPaint = new Paint();
+    private final Paint mArrowPaint = new Paint();
+    // Arrowhead centered on its base, scaled and rotated into place while drawing
+    private final Path mArrow = new Path();
+    private final RectF mArcBounds = new RectF();
+
+    private float mCenterRadius;
+    private float mStrokeWidth;
+    private float mCenterX;
+    private float mCenterY;
+    private float mArcRadius;
+
+    private int mColor = Color.BLACK;
+    private int mAlpha = 255;
+    private float mStartTrim;
+    private float mEndTrim;
+    private float mRotation;
+    private boolean mShowArrow;
+    private float mArrowScale = 1f;
+
+    public DefaultIndicatorRenderer() {
+        mPaint.setStrokeCap(Paint.Cap.SQUARE);
+        mPaint.setAntiAlias(true);
+        mPaint.setStyle(Paint.Style.STROKE);
+        mArrowPaint.setStyle(Paint.Style.FILL);
+        mArrowPaint.setAntiAlias(true);
+        mArrow.setFillType(Path.FillType.EVEN_ODD);
+        updatePaintColor();
+    }
+
+    @Override
+    public void setStyle(int size, float density) {
+        final float arrowWidth;
+        final float arrowHeight;
+        if (size == SwipeHRefreshLayout.LARGE) {
+            mCenterRadius = CENTER_RADIUS_LARGE * density;
+            mStrokeWidth = STROKE_WIDTH_LARGE * density;
+            arrowWidth = ARROW_WIDTH_LARGE * density;
+            arrowHeight = ARROW_HEIGHT_LARGE * density;
+        } else {
+            mCenterRadius = CENTER_RADIUS * density;
+            mStrokeWidth = STROKE_WIDTH * density;
+            arrowWidth = ARROW_WIDTH * density;
+            arrowHeight = ARROW_HEIGHT * density;
+        }
+        mPaint.setStrokeWidth(mStrokeWidth);
+        mArrow.reset();
+        mArrow.moveTo(-arrowWidth / 2f, 0);
+        mArrow.lineTo(arrowWidth / 2f, 0);
+        mArrow.lineTo(0, arrowHeight);
+        mArrow.close();
+        updateArcBounds();
+    }
+
+    @Override
+    public void onBoundsChange(@NonNull Rect bounds) {
+        mCenterX = bounds.exactCenterX();
+        mCenterY = bounds.exactCenterY();
+        updateArcBounds();
+    }
+
+    private void updateArcBounds() {
+        mArcRadius = mCenterRadius + mStrokeWidth / 2f;
+        mArcBounds.set(mCenterX - mArcRadius, mCenterY - mArcRadius,
+                mCenterX + mArcRadius, mCenterY + mArcRadius);
+    }
+
+    /**
+     * @return Distance from the center within which the ring, including its caps, is drawn.
+     */
+    float getRingExtent() {
+        return mArcRadius + mStrokeWidth;
+    }
+
+    @Override
+    public void setColor(int color) {
+        mColor = color;
+        updatePaintColor();
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mAlpha = alpha;
+        updatePaintColor();
+    }
+
+    private void updatePaintColor() {
+        mPaint.setColor(mColor);
+        mPaint.setAlpha(mAlpha);
+        mArrowPaint.setColor(mColor);
+        mArrowPaint.setAlpha(mAlpha);
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        mArrowPaint.setColorFilter(colorFilter);
+    }
+
+    @Override
+    public void setStartEndTrim(float startTrim, float endTrim) {
+        mStartTrim = startTrim;
+        mEndTrim = endTrim;
+    }
+
+    @Override
+    public void setRotation(float rotation) {
+        mRotation = rotation;
+    }
+
+    @Override
+    public void setArrowEnabled(boolean show) {
+        mShowArrow = show;
+    }
+
+    @Override
+    public void setArrowScale(float scale) {
+        mArrowScale = scale;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        final float startAngle = (mStartTrim + mRotation) * 360;
+        final float sweepAngle = (mEndTrim - mStartTrim) * 360;
+        drawRing(canvas, startAngle, sweepAngle);
+        if (mShowArrow) {
+            drawArrowhead(canvas, startAngle + sweepAngle);
+        }
+    }
+
+    void drawRing(@NonNull Canvas canvas, float startAngle, float sweepAngle) {
+        canvas.drawArc(mArcBounds, startAngle, sweepAngle, false, mPaint);
+    }
+
+    /**
+     * Draws the arrowhead at the current arrow scale, at the end of an arc ending at
+     * {@code angle}.
+     */
+    void drawArrowhead(@NonNull Canvas canvas, float angle) {
+        canvas.save();
+        canvas.rotate(angle, mCenterX, mCenterY);
+        canvas.translate(mCenterX + mArcRadius, mCenterY + mStrokeWidth / 2f);
+        canvas.scale(mArrowScale, mArrowScale);
+        canvas.drawPath(mArrow, mArrowPaint);
+        canvas.restore();
+    }
+}
@@ -0,0 +1,132 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.os.Build;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import java.util.ArrayList;
+
+/**
+ * Process-wide watch on the time between frames, deciding whether refresh indicators should
+ * fall back to cheaper rendering.
+ * <p>
+ * Frame timing is the same for every layout of the process, so a single Choreographer callback
+ * is posted per frame while at least one layout watches, and the decision is handed to all of
+ * them. A frame misses its deadline when it comes more than one and a half frame budgets after
+ * the previous one. Quality is reduced once {@link #MISSED_FRAMES_TO_REDUCE} of the last
+ * {@link #WINDOW} frames missed, and is only restored after {@link #FRAMES_TO_RESTORE}
+ * consecutive frames on time, so a single slow frame does not switch quality back and forth.
+ * The decision is kept while nobody watches. Does nothing before API 16, where Choreographer is
+ * not public. Must only be used on the main thread.
+ */
+final class FrameQualityMonitor {
+    private static final int WINDOW = 8;
+    private static final int WINDOW_MASK = (1 << WINDOW) - 1;
+    private static final int MISSED_FRAMES_TO_REDUCE = 3;
+    private static final int FRAMES_TO_RESTORE = 60;
+    private static final float MISSED_FRAME_FACTOR = 1.5f;
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    interface Callback {
+        /**
+         * Called when frames start missing their deadline or have recovered, and with the
+         * current decision when the callback starts watching.
+         */
+        void onQualityChanged(boolean reduced);
+    }
+
+    private static final ArrayList<Callback> sCallbacks = new ArrayList<>();
+    private static ChoreographerFrameCallback sFrameCallback;
+    private static long sFrameBudgetNanos;
+    private static long sLastFrameTimeNanos;
+    // One bit per frame of the window, set when the frame missed its deadline
+    private static int sMissedFrames;
+    private static int sFramesOnTime;
+    private static boolean sQualityReduced;
+
+    private FrameQualityMonitor() {
+    }
+
+    /**
+     * Starts watching frames for a layout. Adding a callback twice has no effect.
+     *
+     * @param refreshRate Refresh rate of the display in frames per second, 0 if unknown.
+     */
+    static void add(@NonNull Callback callback, float refreshRate) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN
+                || sCallbacks.contains(callback)) {
+            return;
+        }
+        sCallbacks.add(callback);
+        sFrameBudgetNanos =
+                (long) (1e9f / (refreshRate > 0 ? refreshRate : DEFAULT_REFRESH_RATE));
+        if (sCallbacks.size() == 1) {
+            if (sFrameCallback == null) {
+                sFrameCallback = new ChoreographerFrameCallback();
+            }
+            // The gap since the last frame of the previous run says nothing about the device
+            sLastFrameTimeNanos = 0;
+            sMissedFrames = 0;
+            sFrameCallback.postFrame();
+        }
+        callback.onQualityChanged(sQualityReduced);
+    }
+
+    static void remove(@NonNull Callback callback) {
+        if (sCallbacks.remove(callback) && sCallbacks.isEmpty()) {
+            sFrameCallback.removeFrame();
+        }
+    }
+
+    static void doFrame(long frameTimeNanos) {
+        if (sLastFrameTimeNanos > 0) {
+            onFrame(frameTimeNanos - sLastFrameTimeNanos);
+        }
+        sLastFrameTimeNanos = frameTimeNanos;
+        // The callbacks may have stopped watching
+        if (!sCallbacks.isEmpty()) {
+            sFrameCallback.postFrame();
+        }
+    }
+
+    private static void onFrame(long frameDurationNanos) {
+        final boolean missed = frameDurationNanos > sFrameBudgetNanos * MISSED_FRAME_FACTOR;
+        sMissedFrames = ((sMissedFrames << 1) | (missed ? 1 : 0)) & WINDOW_MASK;
+        sFramesOnTime = missed ? 0 : sFramesOnTime + 1;
+        if (!sQualityReduced && Integer.bitCount(sMissedFrames) >= MISSED_FRAMES_TO_REDUCE) {
+            setQualityReduced(true);
+        } else if (sQualityReduced && sFramesOnTime >= FRAMES_TO_RESTORE) {
+            setQualityReduced(false);
+        }
+    }
+
+    private static void setQualityReduced(boolean reduced) {
+        sQualityReduced = reduced;
+        // Backwards, so callbacks may remove themselves
+        for (int i = sCallbacks.size() - 1; i >= 0; i--) {
+            if (i < sCallbacks.size()) {
+                sCallbacks.get(i).onQualityChanged(reduced);
+            }
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerFrameCallback implements Choreographer.FrameCallback {
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+
+        void postFrame() {
+            mChoreographer.postFrameCallback(this);
+        }
+
+        void removeFrame() {
+            mChoreographer.removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            FrameQualityMonitor.doFrame(frameTimeNanos);
+        }
+    }
+}
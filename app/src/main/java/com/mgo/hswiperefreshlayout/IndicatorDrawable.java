@@ -0,0 +1,383 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.interpolator.view.animation.FastOutSlowInInterpolator;
+
+/**
+ * Drawable hosting an {@link IndicatorRenderer}.
+ * <p>
+ * Keeps the state that {@link SwipeHRefreshLayout} drives during a swipe and runs the
+ * indeterminate refreshing animation, handing the renderer plain trim, rotation and color values
+ * for every frame. Running drawables are advanced by the shared {@link IndicatorTicker}.
+ */
+class IndicatorDrawable extends Drawable implements Animatable {
+    private static final Interpolator MATERIAL_INTERPOLATOR = new FastOutSlowInInterpolator();
+
+    private static final int ANIMATION_DURATION = 1332;
+
+    // The value in the linear interpolator for animating the drawable at which
+    // the color transition should start
+    private static final float COLOR_CHANGE_OFFSET = 0.75f;
+    private static final float SHRINK_OFFSET = 0.5f;
+
+    // The duration of a single group rotation, in degrees per animation cycle
+    private static final float GROUP_FULL_ROTATION = 1080f / 5f;
+
+    // Maximum and minimum length of the arc, where 1.0 is a full circle
+    private static final float MAX_PROGRESS_ARC = .8f;
+    private static final float MIN_PROGRESS_ARC = .01f;
+
+    // Rotation at which a determinate arc starts, at the top of the circle
+    private static final float PROGRESS_START_ROTATION = .75f;
+
+    // Rotation of the ring and movement of its start per animation cycle
+    private static final float RING_ROTATION = 1f - (MAX_PROGRESS_ARC - MIN_PROGRESS_ARC);
+    private static final float START_TRIM_STEP = MAX_PROGRESS_ARC - 2 * MIN_PROGRESS_ARC;
+
+    private static final int[] COLORS = new int[]{
+            Color.BLACK
+    };
+
+    private final float mDensity;
+    private IndicatorRenderer mRenderer;
+    private int mStyle = SwipeHRefreshLayout.DEFAULT;
+
+    private int[] mColors = COLORS;
+    private int mAlpha = 255;
+    private ColorFilter mColorFilter;
+    private float mStartTrim;
+    private float mEndTrim;
+    private float mRotation;
+    private boolean mShowArrow;
+    private float mArrowScale = 1f;
+
+    // Rotation of the whole indicator while refreshing, in degrees. It is added to the arc
+    // rotation handed to the renderer rather than applied to the canvas, so a renderer can
+    // draw every frame without a rotated canvas
+    private float mGroupRotation;
+
+    private float mStartingStartTrim;
+    private float mStartingRotation;
+    private long mStartTime;
+    private long mPauseTime;
+    private boolean mPaused;
+
+    // Minimum time between two drawn frames of the refreshing animation, 0 for every vsync
+    private long mFrameInterval;
+    private long mLastFrameTime;
+
+    // Slot in the IndicatorTicker while running, -1 otherwise
+    int mTickerIndex = -1;
+
+    IndicatorDrawable(@NonNull Context context) {
+        mDensity = context.getResources().getDisplayMetrics().density;
+        setRenderer(new DefaultIndicatorRenderer());
+    }
+
+    /**
+     * Called by the {@link IndicatorTicker} once per frame while running.
+     */
+    void onTick(long now) {
+        if (mFrameInterval > 0 && now - mLastFrameTime < mFrameInterval) {
+            return;
+        }
+        mLastFrameTime = now;
+        applyFrame(now);
+    }
+
+    void setRenderer(@NonNull IndicatorRenderer renderer) {
+        mRenderer = renderer;
+        renderer.setStyle(mStyle, mDensity);
+        renderer.onBoundsChange(getBounds());
+        renderer.setColor(mColors[0]);
+        renderer.setAlpha(mAlpha);
+        renderer.setColorFilter(mColorFilter);
+        renderer.setStartEndTrim(mStartTrim, mEndTrim);
+        renderer.setRotation(mRotation + mGroupRotation / 360f);
+        renderer.setArrowEnabled(mShowArrow);
+        renderer.setArrowScale(mArrowScale);
+        invalidateSelf();
+    }
+
+    @NonNull
+    IndicatorRenderer getRenderer() {
+        return mRenderer;
+    }
+
+    /**
+     * One of SwipeHRefreshLayout.DEFAULT or LARGE.
+     */
+    void setStyle(int size) {
+        mStyle = size;
+        mRenderer.setStyle(size, mDensity);
+        invalidateSelf();
+    }
+
+    void setColorSchemeColors(@NonNull int... colors) {
+        mColors = colors.length > 0 ? colors : COLORS;
+        mRenderer.setColor(mColors[0]);
+        invalidateSelf();
+    }
+
+    /**
+     * @return The first scheme color, used while the swipe gesture is in progress.
+     */
+    int getStartColor() {
+        return mColors[0];
+    }
+
+    /**
+     * Shows the scheme color at the given index while the swipe gesture is in progress.
+     */
+    void setDragColor(int index) {
+        mRenderer.setColor(mColors[index % mColors.length]);
+        invalidateSelf();
+    }
+
+    void setStartEndTrim(float start, float end) {
+        if (mStartTrim != start || mEndTrim != end) {
+            mStartTrim = start;
+            mEndTrim = end;
+            mRenderer.setStartEndTrim(start, end);
+            invalidateSelf();
+        }
+    }
+
+    void setProgressRotation(float rotation) {
+        if (mRotation != rotation) {
+            mRotation = rotation;
+            updateRendererRotation();
+            invalidateSelf();
+        }
+    }
+
+    void setArrowEnabled(boolean show) {
+        if (mShowArrow != show) {
+            mShowArrow = show;
+            mRenderer.setArrowEnabled(show);
+            invalidateSelf();
+        }
+    }
+
+    void setArrowScale(float scale) {
+        if (mArrowScale != scale) {
+            mArrowScale = scale;
+            mRenderer.setArrowScale(scale);
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        mRenderer.onBoundsChange(bounds);
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        mRenderer.draw(canvas);
+    }
+
+    private void updateRendererRotation() {
+        mRenderer.setRotation(mRotation + mGroupRotation / 360f);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mAlpha = alpha;
+        mRenderer.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getAlpha() {
+        return mAlpha;
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mColorFilter = colorFilter;
+        mRenderer.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    @Override
+    public void start() {
+        IndicatorTicker.remove(this);
+        mPaused = false;
+        // Continue from whatever arc the swipe gesture left behind
+        mStartingStartTrim = mStartTrim;
+        mStartingRotation = mRotation;
+        mStartTime = AnimationUtils.currentAnimationTimeMillis();
+        IndicatorTicker.add(this);
+    }
+
+    @Override
+    public void stop() {
+        IndicatorTicker.remove(this);
+        mPaused = false;
+        mGroupRotation = 0;
+        mShowArrow = false;
+        mStartTrim = 0;
+        mEndTrim = 0;
+        mRotation = 0;
+        mRenderer.setArrowEnabled(false);
+        mRenderer.setColor(mColors[0]);
+        mRenderer.setStartEndTrim(0, 0);
+        mRenderer.setRotation(0);
+        invalidateSelf();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mTickerIndex >= 0;
+    }
+
+    /**
+     * Lowers the rate at which the refreshing animation is drawn. Skipped frames are not
+     * invalidated, so the indicator is not redrawn in between.
+     *
+     * @param frameIntervalMillis Minimum time between two frames, or 0 to draw every frame.
+     */
+    void setFrameInterval(long frameIntervalMillis) {
+        mFrameInterval = frameIntervalMillis;
+    }
+
+    /**
+     * Stops the refreshing animation and leaves a fixed arc in its place.
+     */
+    void showStaticFrame() {
+        IndicatorTicker.remove(this);
+        mPaused = false;
+        mGroupRotation = 0;
+        updateRendererRotation();
+        mRenderer.setColor(mColors[0]);
+        setStartEndTrim(mStartTrim, mStartTrim + MAX_PROGRESS_ARC - MIN_PROGRESS_ARC);
+        invalidateSelf();
+    }
+
+    /**
+     * Stops the refreshing animation and shows a determinate arc starting at the top of the
+     * circle.
+     *
+     * @param progress Part of the ring to fill, from 0 to 1.
+     */
+    void showProgress(float progress) {
+        IndicatorTicker.remove(this);
+        mPaused = false;
+        mGroupRotation = 0;
+        mRenderer.setColor(mColors[0]);
+        setProgressRotation(PROGRESS_START_ROTATION);
+        updateRendererRotation();
+        invalidateSelf();
+        setStartEndTrim(0, Math.max(MIN_PROGRESS_ARC, progress));
+    }
+
+    /**
+     * Stops advancing and invalidating the refreshing animation, keeping its current frame.
+     */
+    void pause() {
+        if (isRunning()) {
+            mPauseTime = AnimationUtils.currentAnimationTimeMillis();
+            IndicatorTicker.remove(this);
+            mPaused = true;
+        }
+    }
+
+    /**
+     * Continues a refreshing animation stopped by {@link #pause()} from the frame it was
+     * showing.
+     */
+    void resume() {
+        if (mPaused) {
+            mPaused = false;
+            mStartTime += AnimationUtils.currentAnimationTimeMillis() - mPauseTime;
+            IndicatorTicker.add(this);
+        }
+    }
+
+    /**
+     * Computes the indeterminate animation state for the given time. The state is a pure
+     * function of the time since {@link #start()}, so frames can be skipped freely.
+     */
+    void applyFrame(long now) {
+        final long elapsed = Math.max(0, now - mStartTime);
+        final int cycle = (int) (elapsed / ANIMATION_DURATION);
+        final float interpolatedTime = (elapsed % ANIMATION_DURATION) / (float) ANIMATION_DURATION;
+
+        float startingStartTrim = mStartingStartTrim + cycle * START_TRIM_STEP;
+        startingStartTrim -= (int) startingStartTrim;
+        final float startTrim;
+        final float endTrim;
+        if (interpolatedTime < SHRINK_OFFSET) {
+            final float scaledTime = interpolatedTime / SHRINK_OFFSET;
+            startTrim = startingStartTrim;
+            endTrim = startTrim + ((MAX_PROGRESS_ARC - MIN_PROGRESS_ARC)
+                    * MATERIAL_INTERPOLATOR.getInterpolation(scaledTime) + MIN_PROGRESS_ARC);
+        } else {
+            final float scaledTime = (interpolatedTime - SHRINK_OFFSET) / (1f - SHRINK_OFFSET);
+            endTrim = startingStartTrim + (MAX_PROGRESS_ARC - MIN_PROGRESS_ARC);
+            startTrim = endTrim - ((MAX_PROGRESS_ARC - MIN_PROGRESS_ARC)
+                    * (1f - MATERIAL_INTERPOLATOR.getInterpolation(scaledTime))
+                    + MIN_PROGRESS_ARC);
+        }
+        float rotation = mStartingRotation + cycle * RING_ROTATION
+                + RING_ROTATION * interpolatedTime;
+        rotation -= (int) rotation;
+
+        mStartTrim = startTrim;
+        mEndTrim = endTrim;
+        mRotation = rotation;
+        mGroupRotation = (GROUP_FULL_ROTATION * (interpolatedTime + cycle)) % 360f;
+        mRenderer.setColor(currentColor(cycle, interpolatedTime));
+        mRenderer.setStartEndTrim(startTrim, endTrim);
+        updateRendererRotation();
+        invalidateSelf();
+    }
+
+    private int currentColor(int cycle, float interpolatedTime) {
+        final int[] colors = mColors;
+        final int startColor = colors[cycle % colors.length];
+        if (interpolatedTime <= COLOR_CHANGE_OFFSET || colors.length == 1) {
+            return startColor;
+        }
+        final int endColor = colors[(cycle + 1) % colors.length];
+        final float fraction = (interpolatedTime - COLOR_CHANGE_OFFSET)
+                / (1f - COLOR_CHANGE_OFFSET);
+        return evaluateColorChange(fraction, startColor, endColor);
+    }
+
+    private static int evaluateColorChange(float fraction, int startValue, int endValue) {
+        final int startA = (startValue >> 24) & 0xff;
+        final int startR = (startValue >> 16) & 0xff;
+        final int startG = (startValue >> 8) & 0xff;
+        final int startB = startValue & 0xff;
+
+        final int endA = (endValue >> 24) & 0xff;
+        final int endR = (endValue >> 16) & 0xff;
+        final int endG = (endValue >> 8) & 0xff;
+        final int endB = endValue & 0xff;
+
+        return (startA + (int) (fraction * (endA - startA))) << 24
+                | (startR + (int) (fraction * (endR - startR))) << 16
+                | (startG + (int) (fraction * (endG - startG))) << 8
+                | (startB + (int) (fraction * (endB - startB)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Rect;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Draws the refresh indicator inside the progress circle of {@link SwipeHRefreshLayout}.
+ * <p>
+ * The layout owns all gesture and animation state and pushes it into the renderer as
+ * normalized values, so an implementation only has to draw. Geometry should be computed in
+ * {@link #setStyle(int, float)} and {@link #onBoundsChange(Rect)}; {@link #draw(Canvas)} is
+ * called every frame while the indicator animates and must not allocate.
+ */
+public interface IndicatorRenderer {
+
+    /**
+     * Called when the indicator size changes.
+     *
+     * @param size    One of {@link SwipeHRefreshLayout#DEFAULT} or
+     *                {@link SwipeHRefreshLayout#LARGE}.
+     * @param density Display density used to convert dips to pixels.
+     */
+    void setStyle(int size, float density);
+
+    /**
+     * Called when the area the indicator is drawn into changes.
+     *
+     * @param bounds Bounds of the indicator in canvas coordinates.
+     */
+    void onBoundsChange(@NonNull Rect bounds);
+
+    /**
+     * @param color Current color of the indicator, already blended between scheme colors.
+     */
+    void setColor(@ColorInt int color);
+
+    /**
+     * @param alpha Alpha of the indicator, from 0 to 255.
+     */
+    void setAlpha(int alpha);
+
+    void setColorFilter(@Nullable ColorFilter colorFilter);
+
+    /**
+     * Sets the visible part of the ring, where 1.0 is a full circle.
+     *
+     * @param startTrim Start of the arc.
+     * @param endTrim   End of the arc.
+     */
+    void setStartEndTrim(float startTrim, float endTrim);
+
+    /**
+     * @param rotation Rotation of the arc, where 1.0 is a full turn. While refreshing this
+     *                 includes the rotation of the whole indicator; the canvas itself is never
+     *                 rotated.
+     */
+    void setRotation(float rotation);
+
+    void setArrowEnabled(boolean show);
+
+    /**
+     * @param scale Scale of the arrowhead, from 0 to 1.
+     */
+    void setArrowScale(float scale);
+
+    void draw(@NonNull Canvas canvas);
+}
@@ -0,0 +1,167 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
+/**
+ * Pre-rendered indicator frames for {@link SpriteIndicatorRenderer}, shared by every renderer
+ * with the same cell size and style.
+ * <p>
+ * Frames are drawn once into a single ALPHA_8 bitmap. Ring frames cover every combination of a
+ * quantized arc length and a quantized position of the arc's center within the first quarter
+ * turn, already rotated into place, so they are blitted without any rotation; arcs centered in
+ * the other quarters are mirror images of these. Their cells are just large enough for the
+ * ring. Arrowhead frames for quantized arrow scales are placed at the end of an arc ending at
+ * angle 0 and fill a whole cell. The paint color tints the mask when blitting, so the atlas does
+ * not depend on the color scheme.
+ */
+final class IndicatorSpriteAtlas {
+    static final int SWEEP_FRAMES = 20;
+    // Arc positions per full turn, a multiple of 4
+    static final int ANGLE_STEPS = 32;
+    // Positions within the first quarter, both of its edges included
+    static final int QUARTER_ANGLES = ANGLE_STEPS / 4 + 1;
+    static final int RING_FRAMES = SWEEP_FRAMES * QUARTER_ANGLES;
+    static final int ARROW_FRAMES = 8;
+
+    // Longest arc drawn by the indicator, where 1.0 is a full circle
+    private static final float MAX_SWEEP = .8f;
+    private static final float ANGLE_STEP = 360f / ANGLE_STEPS;
+    private static final int RING_COLUMNS = 12;
+
+    private static final ArrayList<IndicatorSpriteAtlas> sAtlases = new ArrayList<>();
+
+    final int cellSize;
+    final int ringCellSize;
+    final int style;
+    private final float mDensity;
+    private final int mWidth;
+    private final int mHeight;
+    private Bitmap mBitmap;
+    private final Rect[] mFrames = new Rect[RING_FRAMES + ARROW_FRAMES];
+
+    private IndicatorSpriteAtlas(int cellSize, int style, float density) {
+        this.cellSize = cellSize;
+        this.style = style;
+        mDensity = density;
+        final DefaultIndicatorRenderer renderer = new DefaultIndicatorRenderer();
+        renderer.setStyle(style, density);
+        // Even, so that a mirrored ring lands on the same pixels
+        ringCellSize = 2 * (int) Math.ceil(renderer.getRingExtent() + 1);
+        for (int i = 0; i < RING_FRAMES; i++) {
+            final int left = (i % RING_COLUMNS) * ringCellSize;
+            final int top = (i / RING_COLUMNS) * ringCellSize;
+            mFrames[i] = new Rect(left, top, left + ringCellSize, top + ringCellSize);
+        }
+        final int arrowTop = (RING_FRAMES + RING_COLUMNS - 1) / RING_COLUMNS * ringCellSize;
+        for (int i = 0; i < ARROW_FRAMES; i++) {
+            final int left = i * cellSize;
+            mFrames[RING_FRAMES + i] = new Rect(left, arrowTop, left + cellSize,
+                    arrowTop + cellSize);
+        }
+        mWidth = Math.max(RING_COLUMNS * ringCellSize, ARROW_FRAMES * cellSize);
+        mHeight = arrowTop + cellSize;
+    }
+
+    /**
+     * @return The shared atlas for the given cell size and style, rendering it on first use.
+     */
+    @NonNull
+    static IndicatorSpriteAtlas obtain(int cellSize, int style, float density) {
+        for (int i = 0, count = sAtlases.size(); i < count; i++) {
+            final IndicatorSpriteAtlas atlas = sAtlases.get(i);
+            if (atlas.cellSize == cellSize && atlas.style == style && atlas.mDensity == density) {
+                atlas.ensureRendered();
+                return atlas;
+            }
+        }
+        final IndicatorSpriteAtlas atlas = new IndicatorSpriteAtlas(cellSize, style, density);
+        atlas.ensureRendered();
+        sAtlases.add(atlas);
+        return atlas;
+    }
+
+    private void ensureRendered() {
+        if (mBitmap != null) {
+            return;
+        }
+        mBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ALPHA_8);
+        final Canvas canvas = new Canvas(mBitmap);
+        final DefaultIndicatorRenderer renderer = new DefaultIndicatorRenderer();
+        renderer.setStyle(style, mDensity);
+        renderer.setColor(Color.BLACK);
+        for (int i = 0; i < mFrames.length; i++) {
+            final Rect frame = mFrames[i];
+            renderer.onBoundsChange(frame);
+            if (i < RING_FRAMES) {
+                final float sweepAngle = sweepForFrame(i % SWEEP_FRAMES) * 360;
+                final float centerAngle = (i / SWEEP_FRAMES) * ANGLE_STEP;
+                renderer.drawRing(canvas, centerAngle - sweepAngle / 2, sweepAngle);
+            } else {
+                renderer.setArrowScale(arrowScaleForFrame(i - RING_FRAMES));
+                renderer.drawArrowhead(canvas, 0);
+            }
+        }
+    }
+
+    private static float sweepForFrame(int frame) {
+        return MAX_SWEEP * frame / (SWEEP_FRAMES - 1);
+    }
+
+    private static float arrowScaleForFrame(int frame) {
+        return (frame + 1) / (float) ARROW_FRAMES;
+    }
+
+    /**
+     * @param sweep       Length of the arc, where 1.0 is a full circle.
+     * @param centerAngle Angle of the center of the arc in degrees, from 0 to 90.
+     * @return The ring frame closest to the given arc.
+     */
+    static int ringFrame(float sweep, float centerAngle) {
+        final int sweepFrame = Math.max(0, Math.min(SWEEP_FRAMES - 1,
+                Math.round(sweep / MAX_SWEEP * (SWEEP_FRAMES - 1))));
+        final int angleFrame = Math.max(0, Math.min(QUARTER_ANGLES - 1,
+                Math.round(centerAngle / ANGLE_STEP)));
+        return angleFrame * SWEEP_FRAMES + sweepFrame;
+    }
+
+    /**
+     * @return The arrowhead frame closest to the given scale, or -1 if it would be empty.
+     */
+    static int arrowFrame(float scale) {
+        final int frame = Math.round(scale * ARROW_FRAMES) - 1;
+        return frame < 0 ? -1 : RING_FRAMES + Math.min(ARROW_FRAMES - 1, frame);
+    }
+
+    void draw(@NonNull Canvas canvas, int frame, @NonNull RectF dst, @NonNull Paint paint) {
+        // Only renders after trimMemory() dropped the bitmap
+        ensureRendered();
+        canvas.drawBitmap(mBitmap, mFrames[frame], dst, paint);
+    }
+
+    /**
+     * Blits a ring frame 1:1 into a destination of {@link #ringCellSize} pixels.
+     */
+    void drawRing(@NonNull Canvas canvas, int frame, @NonNull Rect dst, @NonNull Paint paint) {
+        ensureRendered();
+        canvas.drawBitmap(mBitmap, mFrames[frame], dst, paint);
+    }
+
+    /**
+     * Drops the bitmaps of all atlases. They are rendered again the next time they are drawn.
+     * The bitmaps are not recycled since display lists may still reference them.
+     */
+    static void trimMemory() {
+        for (int i = 0, count = sAtlases.size(); i < count; i++) {
+            sAtlases.get(i).mBitmap = null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.animation.AnimationUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+/**
+ * Process-wide frame clock advancing every running {@link IndicatorDrawable}.
+ * <p>
+ * One Choreographer callback is posted per frame while at least one indicator runs, and all of
+ * them are advanced in a single pass over a compact array. Each drawable remembers its slot, so
+ * adding and removing is constant time and allocates nothing once the array has grown to the
+ * largest number of simultaneously running indicators. Must only be used on the main thread.
+ */
+final class IndicatorTicker {
+    // Fallback frame delay before API 16, where Choreographer is not public
+    private static final long FRAME_DELAY = 10;
+
+    private static IndicatorDrawable[] sDrawables = new IndicatorDrawable[4];
+    private static int sCount;
+    private static boolean sFramePosted;
+
+    private static FrameCallbackCompat sFrameCallback;
+
+    private IndicatorTicker() {
+    }
+
+    static void add(@NonNull IndicatorDrawable drawable) {
+        if (drawable.mTickerIndex >= 0) {
+            return;
+        }
+        if (sCount == sDrawables.length) {
+            final IndicatorDrawable[] drawables = new IndicatorDrawable[sCount * 2];
+            System.arraycopy(sDrawables, 0, drawables, 0, sCount);
+            sDrawables = drawables;
+        }
+        drawable.mTickerIndex = sCount;
+        sDrawables[sCount++] = drawable;
+        if (!sFramePosted) {
+            sFramePosted = true;
+            getFrameCallback().postFrame();
+        }
+    }
+
+    static void remove(@NonNull IndicatorDrawable drawable) {
+        final int index = drawable.mTickerIndex;
+        if (index < 0) {
+            return;
+        }
+        // Move the last drawable into the freed slot
+        final IndicatorDrawable last = sDrawables[--sCount];
+        sDrawables[index] = last;
+        last.mTickerIndex = index;
+        sDrawables[sCount] = null;
+        drawable.mTickerIndex = -1;
+    }
+
+    static void doFrame() {
+        sFramePosted = false;
+        final long now = AnimationUtils.currentAnimationTimeMillis();
+        // Backwards, so drawables may remove themselves while ticking
+        for (int i = sCount - 1; i >= 0; i--) {
+            if (i < sCount) {
+                sDrawables[i].onTick(now);
+            }
+        }
+        if (sCount > 0) {
+            sFramePosted = true;
+            sFrameCallback.postFrame();
+        }
+    }
+
+    private static FrameCallbackCompat getFrameCallback() {
+        if (sFrameCallback == null) {
+            sFrameCallback = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                    ? new ChoreographerFrameCallback()
+                    : new HandlerFrameCallback();
+        }
+        return sFrameCallback;
+    }
+
+    private interface FrameCallbackCompat {
+        void postFrame();
+    }
+
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerFrameCallback implements FrameCallbackCompat,
+            Choreographer.FrameCallback {
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+
+        @Override
+        public void postFrame() {
+            mChoreographer.postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            IndicatorTicker.doFrame();
+        }
+    }
+
+    private static class HandlerFrameCallback implements FrameCallbackCompat, Runnable {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void postFrame() {
+            mHandler.postDelayed(this, FRAME_DELAY);
+        }
+
+        @Override
+        public void run() {
+            IndicatorTicker.doFrame();
+        }
+    }
+}
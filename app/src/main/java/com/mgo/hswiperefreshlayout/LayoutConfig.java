@@ -0,0 +1,48 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.DisplayMetrics;
+import android.util.SparseArray;
+import android.view.ViewConfiguration;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Values {@link SwipeHRefreshLayout} derives from the display configuration, resolved once per
+ * density and shared by every instance inflated under it.
+ */
+final class LayoutConfig {
+    private static final SparseArray<LayoutConfig> sCache = new SparseArray<>();
+
+    final float density;
+    final int touchSlop;
+    final int mediumAnimationDuration;
+    final int circleDiameter;
+    final int circleDiameterLarge;
+    final int spinnerOffsetEnd;
+
+    private LayoutConfig(Context context, Resources resources, float density) {
+        this.density = density;
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+        mediumAnimationDuration = resources.getInteger(android.R.integer.config_mediumAnimTime);
+        circleDiameter = (int) (SwipeHRefreshLayout.CIRCLE_DIAMETER * density);
+        circleDiameterLarge = (int) (SwipeHRefreshLayout.CIRCLE_DIAMETER_LARGE * density);
+        spinnerOffsetEnd = (int) (SwipeHRefreshLayout.DEFAULT_CIRCLE_TARGET * density);
+    }
+
+    @NonNull
+    static LayoutConfig get(@NonNull Context context) {
+        final Resources resources = context.getResources();
+        final DisplayMetrics metrics = resources.getDisplayMetrics();
+        // Layouts may be inflated off the main thread by an async inflater
+        synchronized (sCache) {
+            LayoutConfig config = sCache.get(metrics.densityDpi);
+            if (config == null) {
+                config = new LayoutConfig(context, resources, metrics.density);
+                sCache.put(metrics.densityDpi, config);
+            }
+            return config;
+        }
+    }
+}
@@ -1,14 +1,71 @@
 package com.mgo.hswiperefreshlayout;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import android.os.Bundle;
+import android.os.Handler;
 
-public class MainActivity extends AppCompatActivity {
+import java.util.List;
+
+/**
+ * Benchmark harness: a vertical list of {@link #CAROUSEL_COUNT} horizontal carousels, each
+ * wrapped in a {@link SwipeHRefreshLayout}. All carousels refresh in batches through one
+ * {@link RefreshCoordinator}, and a fake backend answers every batch after
+ * {@link #REFRESH_DELAY}. The scenarios in the unit tests drive this activity under
+ * Robolectric.
+ */
+public class MainActivity extends AppCompatActivity
+        implements RefreshCoordinator.OnBatchRefreshListener {
+    static final int CAROUSEL_COUNT = 200;
+    static final int CARDS_PER_CAROUSEL = 20;
+    static final long REFRESH_DELAY = 500;
+    static final String GROUP_CAROUSELS = "carousels";
+
+    private final Handler mHandler = new Handler();
+    RecyclerView mCarousels;
+    RefreshCoordinator mCoordinator;
+    // Number of batches delivered by the coordinator
+    int mBatchCount;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        mCoordinator = new RefreshCoordinator(this);
+        mCarousels = findViewById(R.id.carousels);
+        mCarousels.setLayoutManager(new LinearLayoutManager(this));
+        mCarousels.setHasFixedSize(true);
+        mCarousels.setAdapter(new CarouselAdapter(mCoordinator, GROUP_CAROUSELS,
+                CAROUSEL_COUNT, CARDS_PER_CAROUSEL));
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * Refresh every attached carousel at once.
+     */
+    void refreshAll() {
+        mCoordinator.refreshAll(GROUP_CAROUSELS);
+    }
+
+    @Override
+    public void onBatchRefresh(@NonNull String groupKey,
+            @NonNull final List<SwipeHRefreshLayout> layouts) {
+        mBatchCount++;
+        mHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0, count = layouts.size(); i < count; i++) {
+                    layouts.get(i).setRefreshing(false);
+                }
+            }
+        }, REFRESH_DELAY);
     }
 }
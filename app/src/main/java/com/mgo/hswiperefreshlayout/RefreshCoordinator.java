@@ -0,0 +1,139 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Merges refreshes of several {@link SwipeHRefreshLayout}s into batched calls.
+ * <p>
+ * Layouts join a group with {@link SwipeHRefreshLayout#setRefreshCoordinator}. A refresh
+ * triggered by any of them, by a swipe or by {@link #refreshAll(String)}, is held for the batch
+ * window, and every refresh of the group within that window is delivered in a single
+ * {@link OnBatchRefreshListener#onBatchRefresh} call instead of one
+ * {@link SwipeHRefreshLayout.OnRefreshListener#onRefresh()} per layout. Each layout keeps
+ * refreshing until its part of the batch is done and
+ * {@link SwipeHRefreshLayout#setRefreshing(boolean) setRefreshing(false)} is called on it. A
+ * layout that leaves the group, for example when it is detached, before its batch is delivered
+ * is dropped from the batch and stops refreshing.
+ * <p>
+ * All methods must be called on the main thread.
+ */
+public final class RefreshCoordinator {
+    private static final long DEFAULT_BATCH_WINDOW = 100;
+
+    /**
+     * Classes that wish to be notified of batched refreshes should implement this interface.
+     */
+    public interface OnBatchRefreshListener {
+        /**
+         * Called when the batch window of a group closes.
+         *
+         * @param groupKey Key of the group that refreshes.
+         * @param layouts  Layouts refreshing in this batch. The list is not reused.
+         */
+        void onBatchRefresh(@NonNull String groupKey, @NonNull List<SwipeHRefreshLayout> layouts);
+    }
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final HashMap<String, Group> mGroups = new HashMap<>();
+    private final OnBatchRefreshListener mListener;
+    private final long mBatchWindow;
+
+    public RefreshCoordinator(@NonNull OnBatchRefreshListener listener) {
+        this(listener, DEFAULT_BATCH_WINDOW);
+    }
+
+    /**
+     * @param listener    Listener receiving the batched refreshes.
+     * @param batchWindow Time in milliseconds a refresh waits for others of its group.
+     */
+    public RefreshCoordinator(@NonNull OnBatchRefreshListener listener, long batchWindow) {
+        mListener = listener;
+        mBatchWindow = batchWindow;
+    }
+
+    /**
+     * Show the refreshing indicator on every attached layout of a group and refresh them in a
+     * single batch.
+     */
+    public void refreshAll(@NonNull String groupKey) {
+        final Group group = mGroups.get(groupKey);
+        if (group == null) {
+            return;
+        }
+        for (int i = 0, count = group.layouts.size(); i < count; i++) {
+            final SwipeHRefreshLayout layout = group.layouts.get(i);
+            if (!layout.isRefreshing()) {
+                layout.startGroupRefresh();
+            }
+        }
+    }
+
+    void register(@NonNull String groupKey, @NonNull SwipeHRefreshLayout layout) {
+        Group group = mGroups.get(groupKey);
+        if (group == null) {
+            group = new Group(groupKey);
+            mGroups.put(groupKey, group);
+        }
+        if (!group.layouts.contains(layout)) {
+            group.layouts.add(layout);
+        }
+    }
+
+    void unregister(@NonNull String groupKey, @NonNull SwipeHRefreshLayout layout) {
+        final Group group = mGroups.get(groupKey);
+        if (group == null) {
+            return;
+        }
+        group.layouts.remove(layout);
+        final boolean pending = group.pending.remove(layout);
+        if (group.pending.isEmpty()) {
+            mHandler.removeCallbacks(group);
+        }
+        if (group.layouts.isEmpty()) {
+            mGroups.remove(groupKey);
+        }
+        if (pending) {
+            // Nobody would ever end a refresh left out of the batch
+            layout.cancelRefresh();
+        }
+    }
+
+    /**
+     * Adds a layout to the next batch of its group, opening the batch window if needed.
+     */
+    void requestRefresh(@NonNull String groupKey, @NonNull SwipeHRefreshLayout layout) {
+        register(groupKey, layout);
+        final Group group = mGroups.get(groupKey);
+        if (group.pending.contains(layout)) {
+            return;
+        }
+        group.pending.add(layout);
+        if (group.pending.size() == 1) {
+            mHandler.postDelayed(group, mBatchWindow);
+        }
+    }
+
+    private final class Group implements Runnable {
+        final String key;
+        final ArrayList<SwipeHRefreshLayout> layouts = new ArrayList<>();
+        final ArrayList<SwipeHRefreshLayout> pending = new ArrayList<>();
+
+        Group(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            final List<SwipeHRefreshLayout> batch = new ArrayList<>(pending);
+            pending.clear();
+            mListener.onBatchRefresh(key, batch);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.mgo.hswiperefreshlayout;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide refresh metrics, aggregated over every {@link SwipeHRefreshLayout}.
+ * <p>
+ * Values are kept in fixed power-of-two bucket histograms of primitive counters: bucket 0
+ * holds 0, and bucket {@code b > 0} holds values from {@code 2^(b-1)} to {@code 2^b - 1}. The
+ * last bucket also collects everything larger. Recording never allocates and the counters may
+ * be read or snapshotted from any thread.
+ */
+public final class RefreshMetrics {
+    /**
+     * Milliseconds from releasing the swipe gesture to the
+     * {@link SwipeHRefreshLayout.OnRefreshListener#onRefresh()} call.
+     */
+    public static final int HISTOGRAM_RELEASE_TO_REFRESH = 0;
+    /**
+     * Milliseconds from the {@link SwipeHRefreshLayout.OnRefreshListener#onRefresh()} call to
+     * {@link SwipeHRefreshLayout#setRefreshing(boolean) setRefreshing(false)}.
+     */
+    public static final int HISTOGRAM_REFRESH_DURATION = 1;
+    /**
+     * Pull distance in dips when the swipe gesture is released.
+     */
+    public static final int HISTOGRAM_PULL_DISTANCE = 2;
+
+    public static final int BUCKET_COUNT = 17;
+
+    private static final int HISTOGRAM_COUNT = 3;
+
+    private static final AtomicLongArray sBuckets =
+            new AtomicLongArray(HISTOGRAM_COUNT * BUCKET_COUNT);
+    private static final AtomicLongArray sSums = new AtomicLongArray(HISTOGRAM_COUNT);
+    private static final AtomicLong sTriggered = new AtomicLong();
+    private static final AtomicLong sCancelled = new AtomicLong();
+
+    private RefreshMetrics() {
+    }
+
+    /**
+     * @return The largest value counted in the given bucket, or {@link Long#MAX_VALUE} for the
+     * last bucket.
+     */
+    public static long getBucketUpperBound(int bucket) {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    /**
+     * Copy the bucket counts of a histogram.
+     *
+     * @param histogram One of the {@code HISTOGRAM_} constants.
+     * @param outCounts Array of at least {@link #BUCKET_COUNT} elements receiving the counts.
+     */
+    public static void snapshot(int histogram, @NonNull long[] outCounts) {
+        final int offset = histogram * BUCKET_COUNT;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            outCounts[i] = sBuckets.get(offset + i);
+        }
+    }
+
+    /**
+     * @return The number of values recorded in a histogram.
+     */
+    public static long getCount(int histogram) {
+        final int offset = histogram * BUCKET_COUNT;
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += sBuckets.get(offset + i);
+        }
+        return count;
+    }
+
+    /**
+     * @return The sum of the values recorded in a histogram.
+     */
+    public static long getSum(int histogram) {
+        return sSums.get(histogram);
+    }
+
+    /**
+     * @return The number of released swipe gestures that triggered a refresh.
+     */
+    public static long getTriggeredCount() {
+        return sTriggered.get();
+    }
+
+    /**
+     * @return The number of released swipe gestures that were too short to trigger a refresh.
+     */
+    public static long getCancelledCount() {
+        return sCancelled.get();
+    }
+
+    /**
+     * @return The share of released swipe gestures that did not trigger a refresh, from 0 to 1.
+     */
+    public static float getCancelRate() {
+        final long cancelled = sCancelled.get();
+        final long total = cancelled + sTriggered.get();
+        return total == 0 ? 0f : cancelled / (float) total;
+    }
+
+    /**
+     * Clear all recorded values.
+     */
+    public static void reset() {
+        for (int i = 0; i < sBuckets.length(); i++) {
+            sBuckets.set(i, 0);
+        }
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            sSums.set(i, 0);
+        }
+        sTriggered.set(0);
+        sCancelled.set(0);
+    }
+
+    static void record(int histogram, long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        final int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value));
+        sBuckets.incrementAndGet(histogram * BUCKET_COUNT + bucket);
+        sSums.addAndGet(histogram, value);
+    }
+
+    static void recordRelease(boolean triggered) {
+        if (triggered) {
+            sTriggered.incrementAndGet();
+        } else {
+            sCancelled.incrementAndGet();
+        }
+    }
+}
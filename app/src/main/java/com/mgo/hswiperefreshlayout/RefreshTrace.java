@@ -0,0 +1,64 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.annotation.SuppressLint;
+import android.os.Build;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Optional systrace/Perfetto sections for {@link SwipeHRefreshLayout}.
+ * <p>
+ * The API level checks are folded into the enabled flags when tracing is switched on, so every
+ * call costs a single boolean check while tracing is off. Lint cannot see through the flags,
+ * so NewApi is suppressed on each method calling {@link Trace}.
+ */
+final class RefreshTrace {
+    static final String INTERCEPT_TOUCH = "SwipeHRefresh:onInterceptTouchEvent";
+    static final String TOUCH = "SwipeHRefresh:onTouchEvent";
+    static final String MOVE_SPINNER = "SwipeHRefresh:moveSpinner";
+    static final String MEASURE = "SwipeHRefresh:onMeasure";
+    static final String LAYOUT = "SwipeHRefresh:onLayout";
+    static final String ON_REFRESH = "SwipeHRefresh:onRefresh";
+    static final String SETTLE = "SwipeHRefresh:settle";
+    static final String REFRESH = "SwipeHRefresh:refresh";
+
+    private static boolean sEnabled;
+    private static boolean sAsyncEnabled;
+
+    private RefreshTrace() {
+    }
+
+    static void setEnabled(boolean enabled) {
+        sEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+        sAsyncEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+    }
+
+    @SuppressLint("NewApi")
+    static void beginSection(@NonNull String name) {
+        if (sEnabled) {
+            Trace.beginSection(name);
+        }
+    }
+
+    @SuppressLint("NewApi")
+    static void endSection() {
+        if (sEnabled) {
+            Trace.endSection();
+        }
+    }
+
+    @SuppressLint("NewApi")
+    static void beginAsyncSection(@NonNull String name, int cookie) {
+        if (sAsyncEnabled) {
+            Trace.beginAsyncSection(name, cookie);
+        }
+    }
+
+    @SuppressLint("NewApi")
+    static void endAsyncSection(@NonNull String name, int cookie) {
+        if (sAsyncEnabled) {
+            Trace.endAsyncSection(name, cookie);
+        }
+    }
+}
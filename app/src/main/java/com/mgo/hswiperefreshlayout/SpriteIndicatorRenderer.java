@@ -0,0 +1,174 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * {@link IndicatorRenderer} for very low-end devices that blits pre-rendered frames instead of
+ * drawing vector geometry.
+ * <p>
+ * Arc lengths, arc positions and arrow scales are quantized to the frames of an
+ * {@link IndicatorSpriteAtlas} that is rendered once per size and shared by all instances. The
+ * ring, the only part drawn while refreshing, is copied pixel for pixel without rotation or
+ * filtering, at most mirrored. Only the arrowhead shown during a swipe is drawn rotated. Each
+ * frame costs at most two bitmap draws.
+ */
+public class SpriteIndicatorRenderer implements IndicatorRenderer {
+    private final Paint mRingPaint = new Paint();
+    private final Paint mArrowPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    private final RectF mDst = new RectF();
+    // Ring cell centered on the nearest pixel to the center of the bounds
+    private final Rect mRingDst = new Rect();
+
+    private IndicatorSpriteAtlas mAtlas;
+    private int mStyle = SwipeHRefreshLayout.DEFAULT;
+    private float mDensity;
+    private float mCenterX;
+    private float mCenterY;
+    private int mCellSize;
+
+    private int mColor = Color.BLACK;
+    private int mAlpha = 255;
+    private float mStartTrim;
+    private float mEndTrim;
+    private float mRotation;
+    private boolean mShowArrow;
+    private float mArrowScale = 1f;
+
+    @Override
+    public void setStyle(int size, float density) {
+        mStyle = size;
+        mDensity = density;
+        updateAtlas();
+    }
+
+    @Override
+    public void onBoundsChange(@NonNull Rect bounds) {
+        mCenterX = bounds.exactCenterX();
+        mCenterY = bounds.exactCenterY();
+        mCellSize = Math.min(bounds.width(), bounds.height());
+        mDst.set(mCenterX - mCellSize / 2f, mCenterY - mCellSize / 2f,
+                mCenterX + mCellSize / 2f, mCenterY + mCellSize / 2f);
+        updateAtlas();
+    }
+
+    private void updateAtlas() {
+        if (mCellSize <= 0 || mDensity <= 0) {
+            mAtlas = null;
+            return;
+        }
+        if (mAtlas == null || mAtlas.cellSize != mCellSize || mAtlas.style != mStyle) {
+            mAtlas = IndicatorSpriteAtlas.obtain(mCellSize, mStyle, mDensity);
+        }
+        final int centerX = Math.round(mCenterX);
+        final int centerY = Math.round(mCenterY);
+        final int half = mAtlas.ringCellSize / 2;
+        mRingDst.set(centerX - half, centerY - half, centerX + half, centerY + half);
+    }
+
+    @Override
+    public void setColor(int color) {
+        mColor = color;
+        updatePaintColor();
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mAlpha = alpha;
+        updatePaintColor();
+    }
+
+    private void updatePaintColor() {
+        mRingPaint.setColor(mColor);
+        mRingPaint.setAlpha(mAlpha);
+        mArrowPaint.setColor(mColor);
+        mArrowPaint.setAlpha(mAlpha);
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mRingPaint.setColorFilter(colorFilter);
+        mArrowPaint.setColorFilter(colorFilter);
+    }
+
+    @Override
+    public void setStartEndTrim(float startTrim, float endTrim) {
+        mStartTrim = startTrim;
+        mEndTrim = endTrim;
+    }
+
+    @Override
+    public void setRotation(float rotation) {
+        mRotation = rotation;
+    }
+
+    @Override
+    public void setArrowEnabled(boolean show) {
+        mShowArrow = show;
+    }
+
+    @Override
+    public void setArrowScale(float scale) {
+        mArrowScale = scale;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        if (mAtlas == null) {
+            return;
+        }
+        final float sweep = mEndTrim - mStartTrim;
+        final float startAngle = (mStartTrim + mRotation) * 360;
+        drawRing(canvas, startAngle + sweep * 180, sweep);
+        if (mShowArrow) {
+            final int arrowFrame = IndicatorSpriteAtlas.arrowFrame(mArrowScale);
+            if (arrowFrame >= 0) {
+                canvas.save();
+                canvas.rotate(startAngle + sweep * 360, mCenterX, mCenterY);
+                mAtlas.draw(canvas, arrowFrame, mDst, mArrowPaint);
+                canvas.restore();
+            }
+        }
+    }
+
+    /**
+     * Blits the ring frame closest to an arc centered at the given angle. Only arcs centered in
+     * the first quarter turn are in the atlas; an arc in another quarter is the mirror image of
+     * one of them across the vertical axis, the horizontal axis or both.
+     */
+    private void drawRing(@NonNull Canvas canvas, float centerAngle, float sweep) {
+        float angle = centerAngle % 360;
+        if (angle < 0) {
+            angle += 360;
+        }
+        boolean mirrorX = false;
+        boolean mirrorY = false;
+        if (angle >= 180) {
+            // A half turn mirrors across both axes
+            angle -= 180;
+            mirrorX = true;
+            mirrorY = true;
+        }
+        if (angle > 90) {
+            angle = 180 - angle;
+            mirrorX = !mirrorX;
+        }
+        final int frame = IndicatorSpriteAtlas.ringFrame(sweep, angle);
+        if (!mirrorX && !mirrorY) {
+            mAtlas.drawRing(canvas, frame, mRingDst, mRingPaint);
+            return;
+        }
+        canvas.save();
+        canvas.scale(mirrorX ? -1 : 1, mirrorY ? -1 : 1, mRingDst.exactCenterX(),
+                mRingDst.exactCenterY());
+        mAtlas.drawRing(canvas, frame, mRingDst, mRingPaint);
+        canvas.restore();
+    }
+}
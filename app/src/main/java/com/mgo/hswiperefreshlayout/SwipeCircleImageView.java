@@ -30,33 +30,90 @@ class SwipeCircleImageView extends AppCompatImageView {
 
     private Animation.AnimationListener mListener;
     int mShadowRadius;
+    private final int mShadowXOffset;
+    private final int mShadowYOffset;
+    private int mBackgroundColor;
+    private final float mElevation;
+    // Whether the elevation or the software shadow is drawn, see setShadowEnabled()
+    private boolean mShadowEnabled = true;
+    // Whether the background and its software layer were dropped by releaseResources()
+    private boolean mResourcesReleased;
 
     SwipeCircleImageView(Context context, int color) {
         super(context);
         final float density = getContext().getResources().getDisplayMetrics().density;
-        final int shadowYOffset = (int) (density * Y_OFFSET);
-        final int shadowXOffset = (int) (density * X_OFFSET);
+        mShadowYOffset = (int) (density * Y_OFFSET);
+        mShadowXOffset = (int) (density * X_OFFSET);
 
         mShadowRadius = (int) (density * SHADOW_RADIUS);
+        mBackgroundColor = color;
+        mElevation = SHADOW_ELEVATION * density;
 
-        ShapeDrawable circle;
         if (elevationSupported()) {
+            ViewCompat.setElevation(this, mElevation);
+        } else {
+            final int padding = mShadowRadius;
+            // set padding so the inner image sits correctly within the shadow.
+            setPadding(padding, padding, padding, padding);
+        }
+        createBackground();
+    }
+
+    private void createBackground() {
+        ShapeDrawable circle;
+        if (elevationSupported() || !mShadowEnabled) {
             circle = new ShapeDrawable(new OvalShape());
-            ViewCompat.setElevation(this, SHADOW_ELEVATION * density);
+            if (!elevationSupported()) {
+                setLayerType(View.LAYER_TYPE_NONE, null);
+            }
         } else {
             OvalShape oval = new OvalShadow(mShadowRadius);
             circle = new ShapeDrawable(oval);
             setLayerType(View.LAYER_TYPE_SOFTWARE, circle.getPaint());
-            circle.getPaint().setShadowLayer(mShadowRadius, shadowXOffset, shadowYOffset,
+            circle.getPaint().setShadowLayer(mShadowRadius, mShadowXOffset, mShadowYOffset,
                     KEY_SHADOW_COLOR);
-            final int padding = mShadowRadius;
-            // set padding so the inner image sits correctly within the shadow.
-            setPadding(padding, padding, padding, padding);
         }
-        circle.getPaint().setColor(color);
+        circle.getPaint().setColor(mBackgroundColor);
         ViewCompat.setBackground(this, circle);
     }
 
+    /**
+     * Drops the background circle and, before API 21, the software layer drawing its shadow.
+     * The view must not be shown again before {@link #restoreResources()}.
+     */
+    void releaseResources() {
+        if (!mResourcesReleased) {
+            mResourcesReleased = true;
+            ViewCompat.setBackground(this, null);
+            if (!elevationSupported()) {
+                setLayerType(View.LAYER_TYPE_NONE, null);
+            }
+        }
+    }
+
+    void restoreResources() {
+        if (mResourcesReleased) {
+            mResourcesReleased = false;
+            createBackground();
+        }
+    }
+
+    /**
+     * Turns the shadow off to save drawing time, or back on. The padding reserved for the
+     * software shadow before API 21 is kept so the circle does not move.
+     */
+    void setShadowEnabled(boolean enabled) {
+        if (mShadowEnabled == enabled) {
+            return;
+        }
+        mShadowEnabled = enabled;
+        if (elevationSupported()) {
+            ViewCompat.setElevation(this, enabled ? mElevation : 0);
+        } else if (!mResourcesReleased) {
+            createBackground();
+        }
+    }
+
     private boolean elevationSupported() {
         return android.os.Build.VERSION.SDK_INT >= 21;
     }
@@ -101,6 +158,7 @@ class SwipeCircleImageView extends AppCompatImageView {
 
     @Override
     public void setBackgroundColor(int color) {
+        mBackgroundColor = color;
         if (getBackground() instanceof ShapeDrawable) {
             ((ShapeDrawable) getBackground()).getPaint().setColor(color);
         }
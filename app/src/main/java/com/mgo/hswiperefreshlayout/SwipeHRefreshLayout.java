@@ -16,15 +16,27 @@
 
 package com.mgo.hswiperefreshlayout;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
+import android.graphics.Rect;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.util.AttributeSet;
-import android.util.DisplayMetrics;
 import android.util.Log;
+import android.view.Display;
 import android.view.Gravity;
+import android.view.HapticFeedbackConstants;
 import android.view.MotionEvent;
 import android.view.View;
-import android.view.ViewConfiguration;
+import android.view.ViewTreeObserver;
 import android.view.animation.Animation;
 import android.view.animation.Animation.AnimationListener;
 import android.view.animation.DecelerateInterpolator;
@@ -44,7 +56,9 @@ import androidx.core.view.NestedScrollingChildHelper;
 import androidx.core.view.NestedScrollingParent;
 import androidx.core.view.NestedScrollingParentHelper;
 import androidx.core.view.ViewCompat;
-import androidx.swiperefreshlayout.widget.CircularProgressDrawable;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * SwipeHRefreshLayout
@@ -53,12 +67,23 @@ import androidx.swiperefreshlayout.widget.CircularProgressDrawable;
 public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingParent,
         NestedScrollingChild {
     // Maps to ProgressBar.Large style
-    public static final int LARGE = CircularProgressDrawable.LARGE;
+    public static final int LARGE = 0;
     // Maps to ProgressBar default style
-    public static final int DEFAULT = CircularProgressDrawable.DEFAULT;
+    public static final int DEFAULT = 1;
 
     public static final int DEFAULT_SLINGSHOT_DISTANCE = -1;
 
+    // Refresh animation modes, from most to least expensive
+    public static final int ANIMATION_MODE_FULL = 0;
+    public static final int ANIMATION_MODE_REDUCED_FRAME_RATE = 1;
+    public static final int ANIMATION_MODE_STATIC = 2;
+
+    // States reported to OnPullProgressListener
+    public static final int PULL_STATE_IDLE = 0;
+    public static final int PULL_STATE_DRAGGING = 1;
+    public static final int PULL_STATE_SETTLING = 2;
+    public static final int PULL_STATE_REFRESHING = 3;
+
     @VisibleForTesting
     static final int CIRCLE_DIAMETER = 40;
     @VisibleForTesting
@@ -73,9 +98,31 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
     private static final int INVALID_POINTER = -1;
     private static final float DRAG_RATE = .9f;
 
+    // Gesture and refresh states, ordered so that touch events are handled up to
+    // STATE_DRAGGING and a new swipe can start up to STATE_RETURNING
+    static final int STATE_IDLE = 0;
+    // The indicator animates back to its start after a cancelled swipe or a finished refresh
+    static final int STATE_RETURNING = 1;
+    static final int STATE_DRAGGING = 2;
+    static final int STATE_NESTED_SCROLLING = 3;
+    // From setRefreshing(true) until setRefreshing(false)
+    static final int STATE_REFRESHING = 4;
+
+    // Allowed transitions, as a bit mask of the target states for each state
+    private static final int[] STATE_TRANSITIONS = {
+            /* IDLE */ 1 << STATE_DRAGGING | 1 << STATE_NESTED_SCROLLING | 1 << STATE_REFRESHING,
+            /* RETURNING */ 1 << STATE_IDLE | 1 << STATE_DRAGGING | 1 << STATE_NESTED_SCROLLING
+                    | 1 << STATE_REFRESHING,
+            /* DRAGGING */ 1 << STATE_IDLE | 1 << STATE_RETURNING | 1 << STATE_REFRESHING,
+            /* NESTED_SCROLLING */ 1 << STATE_IDLE | 1 << STATE_RETURNING | 1 << STATE_REFRESHING,
+            /* REFRESHING */ 1 << STATE_IDLE | 1 << STATE_RETURNING
+    };
+
     // Max amount of circle that can be filled by progress during swipe gesture,
     // where 1.0 is a full circle
     private static final float MAX_PROGRESS_ANGLE = .8f;
+    // Steps per unit the ring trim and rotation are rounded to while quality is reduced
+    private static final int REDUCED_QUALITY_STEPS = 40;
 
     private static final int SCALE_DOWN_DURATION = 150;
 
@@ -85,14 +132,81 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
 
     private static final int ANIMATE_TO_START_DURATION = 200;
 
+    private static final int DEFAULT_REDUCED_FRAME_RATE = 20;
+
     // Default background for the progress spinner
     private static final int CIRCLE_BG_LIGHT = 0xFFFAFAFA;
     // Default offset in dips from the top of the view to where the progress spinner should stop
-    private static final int DEFAULT_CIRCLE_TARGET = 64;
+    static final int DEFAULT_CIRCLE_TARGET = 64;
+
+    // Minimum time between two idle refreshes of any layouts, to spread their backend calls
+    private static final long IDLE_REFRESH_SPACING = 200;
+    // Uptime of the last idle refresh started by any layout
+    private static long sLastIdleRefreshTime;
+
+    // Last refresh times shared by layouts throttled under the same key
+    private static final HashMap<String, Long> sSharedRefreshTimes = new HashMap<>();
+
+    // Differs in every process, so saved state can tell whether the refresh it recorded is
+    // still running in this one
+    static final long PROCESS_TOKEN = System.nanoTime();
 
     private View mTarget; // the target of the gesture
     OnRefreshListener mListener;
-    boolean mRefreshing = false;
+    private OnRefreshThrottledListener mThrottledListener;
+    private OnPullProgressListener mPullProgressListener;
+    private OnStagedRefreshListener mStagedListener;
+    // Pull beyond the trigger point at which each further stage starts, in slingshot distances
+    private float[] mRefreshStages = new float[0];
+    // Stage reached by the current pull, -1 until it passes mTotalDragDistance
+    private int mPullStage = -1;
+    // Stage of the current refresh
+    private int mRefreshStage;
+    // Batches refreshes with other layouts of mCoordinatorGroup instead of calling mListener
+    private RefreshCoordinator mCoordinator;
+    private String mCoordinatorGroup;
+    // Pulls within this time of the last refresh do not refresh again, 0 to always refresh
+    private long mMinRefreshInterval;
+    private String mRefreshThrottleKey;
+    private long mLastRefreshTime;
+    // Age after which visible content is refreshed silently while idle, 0 when disabled
+    private long mIdleRefreshTtl;
+    // Whether a silent idle refresh is in progress, and whether mIdleRefreshHandler is queued
+    private boolean mIdleRefreshing;
+    private boolean mIdleRefreshHandlerAdded;
+    private final MessageQueue.IdleHandler mIdleRefreshHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            if (!canIdleRefresh()) {
+                mIdleRefreshHandlerAdded = false;
+                return false;
+            }
+            if (!isVisibleToUser()) {
+                // Scrolled out of view, check again after the next frames
+                return true;
+            }
+            mIdleRefreshHandlerAdded = false;
+            final long now = SystemClock.uptimeMillis();
+            if (now - sLastIdleRefreshTime < IDLE_REFRESH_SPACING) {
+                postDelayed(mScheduleIdleRefreshRunnable, IDLE_REFRESH_SPACING);
+                return false;
+            }
+            sLastIdleRefreshTime = now;
+            mIdleRefreshing = true;
+            mReleaseTime = 0;
+            // A silent refresh always takes the cheapest stage, not that of the last pull
+            mRefreshStage = 0;
+            dispatchRefresh();
+            return false;
+        }
+    };
+    private final Runnable mScheduleIdleRefreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            scheduleIdleRefresh();
+        }
+    };
+    int mState = STATE_IDLE;
     private int mTouchSlop;
     private float mTotalDragDistance = -1;
 
@@ -100,29 +214,34 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
     // consumed by this as the nested scrolling parent is used in place of the
     // overscroll determined by MOVE events in the onTouch handler
     private float mTotalUnconsumed;
+    // Whether a nested scroll started while the indicator was still returning, and has not
+    // pulled it yet
+    private boolean mReturnUnderNestedScroll;
     private final NestedScrollingParentHelper mNestedScrollingParentHelper;
     private final NestedScrollingChildHelper mNestedScrollingChildHelper;
     private final int[] mParentScrollConsumed = new int[2];
     private final int[] mParentOffsetInWindow = new int[2];
-    private boolean mNestedScrollInProgress;
 
     private int mMediumAnimationDuration;
     int mCurrentTargetOffsetLeft;
 
     private float mInitialMotionX;
     private float mInitialDownX;
-    private boolean mIsBeingDragged;
+    private float mInitialDownY;
+    // Touches starting further than this from the left edge cannot start a swipe, 0 for no limit
+    private int mActivationRegion;
+    // Whether a gesture moving left before a drag started is given up
+    private boolean mDirectionGateEnabled;
+    // Whether a gesture must move mostly horizontally to start a swipe
+    private boolean mAxisLockEnabled = true;
+    // Whether the current gesture was ruled out; cleared by the next ACTION_DOWN
+    private boolean mGestureRejected;
     private int mActivePointerId = INVALID_POINTER;
     // Whether this item is scaled up rather than clipped
     boolean mScale;
 
-    // Target is returning to its start offset because it was cancelled or a
-    // refresh was triggered.
-    private boolean mReturningToStart;
     private final DecelerateInterpolator mDecelerateInterpolator;
-    private static final int[] LAYOUT_ATTRS = new int[]{
-            android.R.attr.enabled
-    };
+    private final LayoutConfig mConfig;
 
     SwipeCircleImageView mCircleView;
     private int mCircleViewIndex = -1;
@@ -137,7 +256,137 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
 
     int mCustomSlingshotDistance;
 
-    CircularProgressDrawable mProgress;
+    IndicatorDrawable mProgress;
+
+    // Whether the refreshing animation may be handed to the RenderThread
+    private boolean mRenderThreadAnimationEnabled;
+
+    // Whether mTarget is put on a hardware layer while the indicator moves, and also while
+    // refreshing; mTargetLayer is the target currently holding our layer
+    private boolean mTargetLayerEnabled;
+    private boolean mTargetLayerWhileRefreshing;
+    private View mTargetLayer;
+    // Whether mTarget slides along with the indicator
+    private boolean mContentFollowEnabled;
+
+    // Whether the FrameQualityMonitor is watched while the indicator is in use;
+    // mQualityReduced is set while frames miss their deadline
+    private boolean mAdaptiveQualityEnabled;
+    private boolean mQualityReduced;
+    private final FrameQualityMonitor.Callback mQualityCallback =
+            new FrameQualityMonitor.Callback() {
+                @Override
+                public void onQualityChanged(boolean reduced) {
+                    applyQualityReduced(reduced);
+                }
+            };
+
+    // Time in IDLE after which the indicator resources are released, 0 to keep them
+    private long mResourceReleaseTimeout;
+    private boolean mResourcesReleased;
+    private final Runnable mReleaseResourcesRunnable = new Runnable() {
+        @Override
+        public void run() {
+            releaseIndicatorResources();
+        }
+    };
+    private final ComponentCallbacks2 mTrimMemoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                releaseIndicatorResources();
+            }
+            if (level >= TRIM_MEMORY_UI_HIDDEN) {
+                IndicatorSpriteAtlas.trimMemory();
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+            releaseIndicatorResources();
+            IndicatorSpriteAtlas.trimMemory();
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        }
+    };
+
+    // Lazily inflated AnimatedVectorDrawable swapped in while refreshing
+    private Drawable mRenderThreadSpinner;
+
+    // Whether the refreshing animation has been started, and whether it is currently paused
+    // because the layout is not visible
+    private boolean mRefreshingAnimationStarted;
+    private boolean mRefreshingAnimationPaused;
+    private final Rect mVisibleRect = new Rect();
+    // Animation policy: the mode used under battery saver, with animations turned off in the
+    // system settings, and once a refresh has been running for mLongRefreshThreshold
+    private int mPowerSaveAnimationMode = ANIMATION_MODE_REDUCED_FRAME_RATE;
+    private int mReducedMotionAnimationMode = ANIMATION_MODE_STATIC;
+    private int mLongRefreshAnimationMode = ANIMATION_MODE_FULL;
+    private long mLongRefreshThreshold;
+    private long mReducedFrameInterval = 1000 / DEFAULT_REDUCED_FRAME_RATE;
+    // Mode resolved from the system state when the last animation was started
+    private int mSystemAnimationMode = ANIMATION_MODE_FULL;
+    // Whether the running refresh has outlasted mLongRefreshThreshold
+    private boolean mLongRefreshReached;
+    private final Runnable mLongRefreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mLongRefreshReached = true;
+            applyRefreshingAnimationMode(resolveRefreshingAnimationMode());
+        }
+    };
+
+    // Determinate progress of the current refresh, negative while it is indeterminate
+    private float mRefreshProgress = -1;
+    // Latest value published by setRefreshProgress(), applied once per frame
+    private volatile float mPendingRefreshProgress = -1;
+    private final AtomicBoolean mRefreshProgressPosted = new AtomicBoolean();
+    private final Runnable mApplyRefreshProgressRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mRefreshProgressPosted.set(false);
+            if (mState == STATE_REFRESHING) {
+                applyRefreshProgress(mPendingRefreshProgress);
+            }
+        }
+    };
+
+    // Whether setRefreshing(true) was called before the first frame and the indicator is only
+    // shown once that frame is drawn
+    private boolean mShowRefreshingPending;
+    // Whether mFirstFrameListener is registered. Before the layout is attached it goes to a
+    // floating observer that the window's observer takes over on attach.
+    private boolean mFirstFrameListenerAdded;
+    private final ViewTreeObserver.OnPreDrawListener mFirstFrameListener =
+            new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    removeFirstFrameListener();
+                    // Runs after the frame that is about to be drawn
+                    post(mShowRefreshingRunnable);
+                    return true;
+                }
+            };
+    private final Runnable mShowRefreshingRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mShowRefreshingPending) {
+                mShowRefreshingPending = false;
+                showRefreshingIndicator();
+            }
+        }
+    };
+
+    private final ViewTreeObserver.OnScrollChangedListener mScrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    updateRefreshingAnimationVisibility();
+                }
+            };
 
     private Animation mScaleAnimation;
 
@@ -149,6 +398,7 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
 
     private Animation mScaleDownToStartAnimation;
 
+    // Whether the listener is called once the indicator reaches STATE_REFRESHING's position
     boolean mNotify;
 
     private int mCircleDiameter;
@@ -169,14 +419,13 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
 
         @Override
         public void onAnimationEnd(Animation animation) {
-            if (mRefreshing) {
+            if (mState == STATE_REFRESHING) {
                 // Make sure the progress view is fully visible
                 mProgress.setAlpha(MAX_ALPHA);
-                mProgress.start();
+                startRefreshingAnimation();
+                dispatchSettleProgress(PULL_STATE_REFRESHING);
                 if (mNotify) {
-                    if (mListener != null) {
-                        mListener.onRefresh();
-                    }
+                    dispatchRefresh();
                 }
                 mCurrentTargetOffsetLeft = mCircleView.getLeft();
             } else {
@@ -185,9 +434,79 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
         }
     };
 
+    private void dispatchRefresh() {
+        if (mCoordinator == null && mListener == null && mStagedListener == null) {
+            return;
+        }
+        final long now = SystemClock.uptimeMillis();
+        if (mReleaseTime > 0) {
+            RefreshMetrics.record(RefreshMetrics.HISTOGRAM_RELEASE_TO_REFRESH,
+                    now - mReleaseTime);
+            mReleaseTime = 0;
+        }
+        mRefreshStartTime = now;
+        if (mCoordinator != null) {
+            mCoordinator.requestRefresh(mCoordinatorGroup, this);
+        } else {
+            RefreshTrace.beginSection(RefreshTrace.ON_REFRESH);
+            if (mStagedListener != null) {
+                mStagedListener.onRefresh(mRefreshStage);
+            } else {
+                mListener.onRefresh();
+            }
+            RefreshTrace.endSection();
+        }
+    }
+
+    // Ends STATE_RETURNING once a cancelled swipe has settled
+    private final Animation.AnimationListener mReturnedListener =
+            new Animation.AnimationListener() {
+                @Override
+                public void onAnimationStart(Animation animation) {
+                }
+
+                @Override
+                public void onAnimationEnd(Animation animation) {
+                    endReturnUnderNestedScroll();
+                    if (mState == STATE_RETURNING) {
+                        setState(STATE_IDLE);
+                    }
+                }
+
+                @Override
+                public void onAnimationRepeat(Animation animation) {
+                }
+            };
+
+    // Brackets each settle animation with an async trace slice
+    private final Animation.AnimationListener mSettleTraceListener =
+            new Animation.AnimationListener() {
+                @Override
+                public void onAnimationStart(Animation animation) {
+                    RefreshTrace.beginAsyncSection(RefreshTrace.SETTLE, mTraceCookie);
+                }
+
+                @Override
+                public void onAnimationEnd(Animation animation) {
+                    RefreshTrace.endAsyncSection(RefreshTrace.SETTLE, mTraceCookie);
+                }
+
+                @Override
+                public void onAnimationRepeat(Animation animation) {
+                }
+            };
+
+    private final int mTraceCookie = System.identityHashCode(this);
+    private boolean mRefreshTraceStarted;
+
+    // Uptime of the last gesture release and of the last onRefresh call, for RefreshMetrics
+    private long mReleaseTime;
+    private long mRefreshStartTime;
+
     void reset() {
         mCircleView.clearAnimation();
-        mProgress.stop();
+        stopRefreshingAnimation();
+        clearRefreshProgress();
         mCircleView.setVisibility(View.GONE);
         setColorViewAlpha(MAX_ALPHA);
         // Return the circle to its start position
@@ -197,24 +516,275 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
             setTargetOffsetLeftAndRight(mOriginalOffsetLeft - mCurrentTargetOffsetLeft);
         }
         mCurrentTargetOffsetLeft = mCircleView.getLeft();
+        mPullStage = -1;
+        endReturnUnderNestedScroll();
+        if (mState == STATE_RETURNING) {
+            setState(STATE_IDLE);
+        }
+        if (mPullProgressListener != null) {
+            mPullProgressListener.onPullProgress(0, 0, 0, PULL_STATE_IDLE);
+        }
+    }
+
+    /**
+     * Moves to a new state, ignoring transitions that {@link #STATE_TRANSITIONS} does not
+     * allow.
+     *
+     * @return Whether the layout is now in the given state.
+     */
+    boolean setState(int state) {
+        if (mState == state) {
+            return true;
+        }
+        if ((STATE_TRANSITIONS[mState] & (1 << state)) == 0) {
+            Log.e(LOG_TAG, "Illegal state transition from " + mState + " to " + state);
+            return false;
+        }
+        final int previousState = mState;
+        mState = state;
+        if (previousState == STATE_RETURNING && state == STATE_DRAGGING) {
+            takeOverReturningIndicator();
+        } else if (previousState == STATE_RETURNING && state == STATE_NESTED_SCROLLING) {
+            // Child scrolls start on every touch: only take over once the scroll pulls
+            mReturnUnderNestedScroll = true;
+        }
+        onIndicatorDisplacementChanged();
+        return true;
+    }
+
+    /**
+     * @return Whether a swipe, a nested scroll that pulled, a settle animation or a refresh
+     * moves the indicator. A nested scroll alone does not count, as scrolling children start
+     * one on every touch.
+     */
+    private boolean isIndicatorDisplaced() {
+        switch (mState) {
+            case STATE_DRAGGING:
+            case STATE_RETURNING:
+            case STATE_REFRESHING:
+                return true;
+            case STATE_NESTED_SCROLLING:
+                return mTotalUnconsumed > 0 || mReturnUnderNestedScroll;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Only keeps the target layer, the frame quality watch and the indicator resources while
+     * the indicator is displaced.
+     */
+    private void onIndicatorDisplacementChanged() {
+        updateTargetLayer();
+        updateFrameQualityMonitor();
+        if (isIndicatorDisplaced()) {
+            removeCallbacks(mReleaseResourcesRunnable);
+            restoreIndicatorResources();
+        } else if (mState == STATE_IDLE) {
+            scheduleResourceRelease();
+        }
+    }
+
+    private void endReturnUnderNestedScroll() {
+        if (mReturnUnderNestedScroll) {
+            mReturnUnderNestedScroll = false;
+            onIndicatorDisplacementChanged();
+        }
+    }
+
+    /**
+     * Stops what is left of a return to the start when a new swipe pulls the indicator, so
+     * that neither the settle animation nor its listener resets, hides or scales down the
+     * indicator mid-gesture.
+     */
+    private void takeOverReturningIndicator() {
+        mCircleView.setAnimationListener(null);
+        mCircleView.clearAnimation();
+        // Still running when the return follows a finished refresh
+        stopRefreshingAnimation();
+        clearRefreshProgress();
+        mPullStage = -1;
+    }
+
+    /**
+     * Release the indicator's background, its software shadow layer before API 21 and the
+     * RenderThread spinner once the layout has been idle for the given time. They are rebuilt
+     * when the next swipe starts or {@link #setRefreshing(boolean) setRefreshing(true)} is
+     * called. Independently of this timeout they are released when the system asks the app to
+     * trim memory.
+     *
+     * @param timeoutMillis Idle time after which resources are released, or 0 to keep them.
+     */
+    public void setResourceReleaseTimeout(long timeoutMillis) {
+        mResourceReleaseTimeout = timeoutMillis;
+        scheduleResourceRelease();
+    }
+
+    private void scheduleResourceRelease() {
+        removeCallbacks(mReleaseResourcesRunnable);
+        if (mResourceReleaseTimeout > 0 && mState == STATE_IDLE && !mResourcesReleased) {
+            postDelayed(mReleaseResourcesRunnable, mResourceReleaseTimeout);
+        }
+    }
+
+    void releaseIndicatorResources() {
+        if (mState != STATE_IDLE || mResourcesReleased) {
+            return;
+        }
+        mResourcesReleased = true;
+        mCircleView.clearAnimation();
+        mCircleView.setVisibility(View.GONE);
+        mCircleView.releaseResources();
+        if (mCircleView.getDrawable() != mRenderThreadSpinner) {
+            mRenderThreadSpinner = null;
+        }
+    }
+
+    private void restoreIndicatorResources() {
+        if (mResourcesReleased) {
+            mResourcesReleased = false;
+            mCircleView.restoreResources();
+        }
+    }
+
+    /**
+     * Drops a drag or nested scroll whose remaining events will not reach us.
+     */
+    private void cancelGesture() {
+        if (mState == STATE_DRAGGING) {
+            setState(STATE_IDLE);
+        }
+        endNestedScroll();
+    }
+
+    /**
+     * Leaves {@link #STATE_NESTED_SCROLLING}, handing the indicator back to the return it
+     * interrupted if that is still running.
+     */
+    private void endNestedScroll() {
+        if (mState == STATE_NESTED_SCROLLING) {
+            setState(mReturnUnderNestedScroll ? STATE_RETURNING : STATE_IDLE);
+        }
+        mReturnUnderNestedScroll = false;
     }
 
     @Override
     public void setEnabled(boolean enabled) {
         super.setEnabled(enabled);
         if (!enabled) {
+            cancelGesture();
             reset();
         }
+        scheduleIdleRefresh();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mCoordinator != null) {
+            mCoordinator.register(mCoordinatorGroup, this);
+        }
+        getContext().getApplicationContext().registerComponentCallbacks(mTrimMemoryCallbacks);
+        if (mShowRefreshingPending) {
+            // Only needed when detaching removed it
+            addFirstFrameListener();
+        }
+        scheduleIdleRefresh();
+        scheduleResourceRelease();
+        updateFrameQualityMonitor();
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        if (mCoordinator != null) {
+            mCoordinator.unregister(mCoordinatorGroup, this);
+        }
+        getContext().getApplicationContext().unregisterComponentCallbacks(mTrimMemoryCallbacks);
+        if (mShowRefreshingPending) {
+            // Added again when attached
+            removeFirstFrameListener();
+            removeCallbacks(mShowRefreshingRunnable);
+        }
+        cancelIdleRefresh();
+        cancelGesture();
         reset();
+        removeCallbacks(mReleaseResourcesRunnable);
+        releaseTargetLayer();
+        FrameQualityMonitor.remove(mQualityCallback);
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState state = new SavedState(super.onSaveInstanceState());
+        // A silent idle refresh has no indicator to bring back
+        state.refreshing = mState == STATE_REFRESHING;
+        if (state.refreshing) {
+            final Animation animation = mCircleView.getAnimation();
+            final boolean settling = mShowRefreshingPending
+                    || (animation != null && !animation.hasEnded());
+            // Restore where the indicator comes to rest rather than midway through a settle
+            state.indicatorOffset = (settling ? getRefreshingOffset() : mCurrentTargetOffsetLeft)
+                    - mOriginalOffsetLeft;
+            state.refreshProgress = mRefreshProgress;
+        }
+        state.lastRefreshTime = getLastRefreshTime();
+        state.processToken = PROCESS_TOKEN;
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        // A time ahead of the clock was saved before a reboot
+        if (savedState.lastRefreshTime > 0
+                && savedState.lastRefreshTime <= SystemClock.elapsedRealtime()
+                && savedState.lastRefreshTime > getLastRefreshTime()) {
+            setLastRefreshTime(savedState.lastRefreshTime);
+        }
+        // A refresh saved by another process died with it and would never be finished.
+        // setRefreshing(true) may have been called again before the first frame: show the
+        // indicator where it was instead of scaling it in
+        if (savedState.refreshing && savedState.processToken == PROCESS_TOKEN
+                && (mState == STATE_IDLE || cancelPendingRefreshingIndicator())) {
+            restoreRefreshing(mOriginalOffsetLeft + savedState.indicatorOffset,
+                    savedState.refreshProgress);
+        }
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        updateRefreshingAnimationVisibility();
+        scheduleIdleRefresh();
+    }
+
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        // onVisibilityAggregated() is only dispatched from API 24
+        updateRefreshingAnimationVisibility();
+        scheduleIdleRefresh();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateRefreshingAnimationVisibility();
+        scheduleIdleRefresh();
     }
 
     private void setColorViewAlpha(int targetAlpha) {
-        mCircleView.getBackground().setAlpha(targetAlpha);
+        // The background is gone while the indicator resources are released
+        final Drawable background = mCircleView.getBackground();
+        if (background != null) {
+            background.setAlpha(targetAlpha);
+        }
         mProgress.setAlpha(targetAlpha);
     }
 
@@ -242,8 +812,35 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
         mOriginalOffsetLeft = start;
         mSpinnerOffsetEnd = end;
         mUsingCustomStart = true;
+        cancelPendingRefreshingIndicator();
         reset();
-        mRefreshing = false;
+        setState(STATE_IDLE);
+        endRefreshTrace();
+    }
+
+    /**
+     * Emit named trace sections and async slices for touch handling, spinner movement, settle
+     * animations, the refresh lifecycle and measure/layout, for all instances. While off each
+     * trace point costs a single boolean check.
+     *
+     * @param enabled Whether trace sections should be emitted.
+     */
+    public static void setTracingEnabled(boolean enabled) {
+        RefreshTrace.setEnabled(enabled);
+    }
+
+    private void beginRefreshTrace() {
+        if (!mRefreshTraceStarted) {
+            mRefreshTraceStarted = true;
+            RefreshTrace.beginAsyncSection(RefreshTrace.REFRESH, mTraceCookie);
+        }
+    }
+
+    private void endRefreshTrace() {
+        if (mRefreshTraceStarted) {
+            mRefreshTraceStarted = false;
+            RefreshTrace.endAsyncSection(RefreshTrace.REFRESH, mTraceCookie);
+        }
     }
 
     /**
@@ -293,133 +890,835 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
     }
 
     /**
-     * One of DEFAULT, or LARGE.
+     * One of DEFAULT, or LARGE.
+     */
+    public void setSize(int size) {
+        if (size != LARGE && size != DEFAULT) {
+            return;
+        }
+        if (size == LARGE) {
+            mCircleDiameter = mConfig.circleDiameterLarge;
+        } else {
+            mCircleDiameter = mConfig.circleDiameter;
+        }
+        // force the bounds of the progress circle inside the circle view to
+        // update by setting it to null before updating its size and then
+        // re-setting it
+        final Drawable current = mCircleView.getDrawable();
+        mCircleView.setImageDrawable(null);
+        mProgress.setStyle(size);
+        mCircleView.setImageDrawable(current);
+    }
+
+    /**
+     * Run the refreshing animation on the RenderThread so it stays smooth while the UI thread
+     * is busy, for example with work started from {@link OnRefreshListener#onRefresh()}. This
+     * only takes effect from API 25, where AnimatedVectorDrawable is animated by the
+     * RenderThread; the spinner then uses the first color of the color scheme only.
+     *
+     * @param enabled Whether the refreshing animation should run on the RenderThread.
+     */
+    public void setRenderThreadAnimationEnabled(boolean enabled) {
+        mRenderThreadAnimationEnabled = enabled;
+    }
+
+    /**
+     * Put the content on a hardware layer while the indicator is dragged or settles, so that
+     * it is composited from the layer instead of being redrawn when the indicator invalidates.
+     * The layer is released as soon as the indicator comes to rest. It is not applied if the
+     * content already has a layer type of its own.
+     *
+     * @param enabled          Whether to use a layer while the indicator moves.
+     * @param whileRefreshing  Whether to keep the layer while refreshing as well; only worth it
+     *                         if the content does not change until the refresh completes.
+     */
+    public void setTargetLayerEnabled(boolean enabled, boolean whileRefreshing) {
+        mTargetLayerEnabled = enabled;
+        mTargetLayerWhileRefreshing = whileRefreshing;
+        updateTargetLayer();
+    }
+
+    private void updateTargetLayer() {
+        final boolean layer;
+        if (mState == STATE_REFRESHING) {
+            // Still settling into the refreshing position until the animation starts
+            layer = mTargetLayerEnabled && !mShowRefreshingPending
+                    && (mTargetLayerWhileRefreshing || !mRefreshingAnimationStarted);
+        } else {
+            layer = mTargetLayerEnabled && isIndicatorDisplaced();
+        }
+        if (!layer) {
+            releaseTargetLayer();
+        } else if (mTargetLayer == null && mTarget != null
+                && mTarget.getLayerType() == View.LAYER_TYPE_NONE) {
+            mTargetLayer = mTarget;
+            mTargetLayer.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        }
+    }
+
+    private void releaseTargetLayer() {
+        if (mTargetLayer != null) {
+            mTargetLayer.setLayerType(View.LAYER_TYPE_NONE, null);
+            mTargetLayer = null;
+        }
+    }
+
+    /**
+     * Watch frame times while the indicator moves or refreshes, and fall back to cheaper
+     * rendering while frames miss their deadline: no shadow, no arrow, no alpha fades, coarser
+     * ring updates during a drag and the reduced frame rate for the refreshing animation. Full
+     * quality comes back once frames have been on time for about a second. Has no effect
+     * before API 16.
+     *
+     * @param enabled Whether to adapt the indicator quality to the frame times.
+     */
+    public void setAdaptiveQualityEnabled(boolean enabled) {
+        if (mAdaptiveQualityEnabled == enabled) {
+            return;
+        }
+        mAdaptiveQualityEnabled = enabled;
+        updateFrameQualityMonitor();
+        if (!enabled) {
+            applyQualityReduced(false);
+        }
+    }
+
+    /**
+     * @return Whether adaptive quality currently renders the indicator with reduced effects.
+     */
+    public boolean isQualityReduced() {
+        return mQualityReduced;
+    }
+
+    private void updateFrameQualityMonitor() {
+        final boolean watch = mAdaptiveQualityEnabled && ViewCompat.isAttachedToWindow(this)
+                && isIndicatorDisplaced();
+        if (watch) {
+            final Display display = ViewCompat.getDisplay(this);
+            FrameQualityMonitor.add(mQualityCallback,
+                    display != null ? display.getRefreshRate() : 0);
+        } else {
+            FrameQualityMonitor.remove(mQualityCallback);
+        }
+    }
+
+    void applyQualityReduced(boolean reduced) {
+        if (mQualityReduced == reduced) {
+            return;
+        }
+        mQualityReduced = reduced;
+        mCircleView.setShadowEnabled(!reduced);
+        if (reduced) {
+            // Shown again by the next drag move once quality is restored
+            mProgress.setArrowEnabled(false);
+        }
+        if (mRefreshingAnimationStarted) {
+            applyRefreshingAnimationMode(resolveRefreshingAnimationMode());
+        }
+    }
+
+    /**
+     * @return Whether the refreshing animation may run on the RenderThread.
+     */
+    public boolean isRenderThreadAnimationEnabled() {
+        return mRenderThreadAnimationEnabled;
+    }
+
+    /**
+     * Set the animation mode used while battery saver is on. Defaults to
+     * {@link #ANIMATION_MODE_REDUCED_FRAME_RATE}.
+     *
+     * @param mode One of {@link #ANIMATION_MODE_FULL}, {@link #ANIMATION_MODE_REDUCED_FRAME_RATE}
+     *             or {@link #ANIMATION_MODE_STATIC}.
+     */
+    public void setPowerSaveAnimationMode(int mode) {
+        mPowerSaveAnimationMode = mode;
+    }
+
+    /**
+     * Set the animation mode used when the animator duration scale is set to 0 in the system
+     * settings. Defaults to {@link #ANIMATION_MODE_STATIC}.
+     *
+     * @param mode One of {@link #ANIMATION_MODE_FULL}, {@link #ANIMATION_MODE_REDUCED_FRAME_RATE}
+     *             or {@link #ANIMATION_MODE_STATIC}.
+     */
+    public void setReducedMotionAnimationMode(int mode) {
+        mReducedMotionAnimationMode = mode;
+    }
+
+    /**
+     * Lower the refreshing animation once a refresh has been running for a while.
+     *
+     * @param thresholdMillis Time after which the refresh is considered long, or 0 to disable.
+     * @param mode            One of {@link #ANIMATION_MODE_FULL},
+     *                        {@link #ANIMATION_MODE_REDUCED_FRAME_RATE} or
+     *                        {@link #ANIMATION_MODE_STATIC}.
+     */
+    public void setLongRefreshAnimationMode(long thresholdMillis, int mode) {
+        mLongRefreshThreshold = thresholdMillis;
+        mLongRefreshAnimationMode = mode;
+    }
+
+    /**
+     * Set the frame rate of the refreshing animation in
+     * {@link #ANIMATION_MODE_REDUCED_FRAME_RATE}.
+     *
+     * @param framesPerSecond Frames drawn per second.
+     */
+    public void setReducedFrameRate(int framesPerSecond) {
+        mReducedFrameInterval = framesPerSecond > 0 ? 1000 / framesPerSecond : 0;
+    }
+
+    private void updateSystemAnimationMode() {
+        final Context context = getContext();
+        int mode = ANIMATION_MODE_FULL;
+        if (SystemAnimationState.areAnimationsDisabled(context)) {
+            mode = Math.max(mode, mReducedMotionAnimationMode);
+        }
+        if (SystemAnimationState.isPowerSaveMode(context)) {
+            mode = Math.max(mode, mPowerSaveAnimationMode);
+        }
+        mSystemAnimationMode = mode;
+    }
+
+    /**
+     * @return The duration of a settle animation under the current animation mode.
+     */
+    private int settleDuration(int duration) {
+        switch (mSystemAnimationMode) {
+            case ANIMATION_MODE_STATIC:
+                return 0;
+            case ANIMATION_MODE_REDUCED_FRAME_RATE:
+                return duration / 2;
+            default:
+                return duration;
+        }
+    }
+
+    /**
+     * @return The mode for the refreshing animation, combining the system state, the long
+     * refresh policy and adaptive quality.
+     */
+    private int resolveRefreshingAnimationMode() {
+        int mode = mSystemAnimationMode;
+        if (mLongRefreshReached) {
+            mode = Math.max(mode, mLongRefreshAnimationMode);
+        }
+        // The RenderThread spinner does not suffer from a slow UI thread, leave it running
+        if (mQualityReduced && (mRenderThreadSpinner == null
+                || mCircleView.getDrawable() != mRenderThreadSpinner)) {
+            mode = Math.max(mode, ANIMATION_MODE_REDUCED_FRAME_RATE);
+        }
+        return mode;
+    }
+
+    private boolean canUseRenderThreadSpinner() {
+        return mRenderThreadAnimationEnabled && mSystemAnimationMode == ANIMATION_MODE_FULL
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1;
+    }
+
+    void startRefreshingAnimation() {
+        mRefreshingAnimationStarted = true;
+        mRefreshingAnimationPaused = false;
+        mLongRefreshReached = false;
+        getViewTreeObserver().addOnScrollChangedListener(mScrollChangedListener);
+        if (mRefreshProgress >= 0) {
+            mProgress.showProgress(mRefreshProgress);
+        } else {
+            resumeRefreshingAnimation();
+            applyRefreshingAnimationMode(resolveRefreshingAnimationMode());
+        }
+        if (mLongRefreshThreshold > 0) {
+            postDelayed(mLongRefreshRunnable, mLongRefreshThreshold);
+        }
+        updateRefreshingAnimationVisibility();
+        updateTargetLayer();
+    }
+
+    void applyRefreshingAnimationMode(int mode) {
+        if (mRefreshProgress >= 0 || mState != STATE_REFRESHING) {
+            // A determinate arc does not animate, and the indicator of a finished refresh
+            // only scales away
+            return;
+        }
+        if (mode == ANIMATION_MODE_FULL) {
+            mProgress.setFrameInterval(0);
+            return;
+        }
+        if (mRenderThreadSpinner != null && mCircleView.getDrawable() == mRenderThreadSpinner) {
+            // The RenderThread spinner can neither skip frames nor stand still
+            ((Animatable) mRenderThreadSpinner).stop();
+            mCircleView.setImageDrawable(mProgress);
+            mProgress.start();
+        }
+        if (mode == ANIMATION_MODE_REDUCED_FRAME_RATE) {
+            mProgress.setFrameInterval(mReducedFrameInterval);
+        } else {
+            mProgress.showStaticFrame();
+        }
+    }
+
+    private void resumeRefreshingAnimation() {
+        if (canUseRenderThreadSpinner()) {
+            if (mRenderThreadSpinner == null) {
+                // mutate so the tint is not shared with other layouts
+                mRenderThreadSpinner = ContextCompat.getDrawable(getContext(),
+                        R.drawable.refresh_spinner_animated).mutate();
+            }
+            mRenderThreadSpinner.setTint(mProgress.getStartColor());
+            mCircleView.setImageDrawable(mRenderThreadSpinner);
+            ((Animatable) mRenderThreadSpinner).start();
+        } else {
+            mProgress.start();
+        }
+    }
+
+    void stopRefreshingAnimation() {
+        if (mRefreshingAnimationStarted) {
+            mRefreshingAnimationStarted = false;
+            mRefreshingAnimationPaused = false;
+            getViewTreeObserver().removeOnScrollChangedListener(mScrollChangedListener);
+            removeCallbacks(mLongRefreshRunnable);
+        }
+        mProgress.setFrameInterval(0);
+        if (mRenderThreadSpinner != null && mCircleView.getDrawable() == mRenderThreadSpinner) {
+            ((Animatable) mRenderThreadSpinner).stop();
+            mCircleView.setImageDrawable(mProgress);
+        }
+        mProgress.stop();
+    }
+
+    /**
+     * Pauses the refreshing animation while the layout is hidden, in a hidden window or
+     * scrolled out of its parents' bounds, and resumes it once it can be seen again.
+     */
+    void updateRefreshingAnimationVisibility() {
+        // Visibility callbacks can arrive from the View constructor before we are set up
+        if (mCircleView == null || !mRefreshingAnimationStarted) {
+            return;
+        }
+        final boolean visible = isVisibleToUser();
+        if (visible == !mRefreshingAnimationPaused) {
+            return;
+        }
+        mRefreshingAnimationPaused = !visible;
+        if (visible) {
+            if (mCircleView.getDrawable() == mProgress) {
+                mProgress.resume();
+            } else {
+                ((Animatable) mRenderThreadSpinner).start();
+            }
+        } else {
+            if (mCircleView.getDrawable() == mProgress) {
+                mProgress.pause();
+            } else {
+                ((Animatable) mRenderThreadSpinner).stop();
+            }
+        }
+    }
+
+    /**
+     * @return Whether the layout is shown in a visible window and not scrolled entirely out of
+     * its parents' bounds.
+     */
+    private boolean isVisibleToUser() {
+        return getWindowVisibility() == View.VISIBLE && isShown()
+                && (getWidth() == 0 || getLocalVisibleRect(mVisibleRect));
+    }
+
+    /**
+     * Simple constructor to use when creating a SwipeRefreshLayout from code.
+     *
+     * @param context
+     */
+    public SwipeHRefreshLayout(@NonNull Context context) {
+        this(context, null);
+    }
+
+    /**
+     * Constructor that is called when inflating SwipeRefreshLayout from XML.
+     *
+     * @param context
+     * @param attrs
+     */
+    public SwipeHRefreshLayout(@NonNull Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+
+        // Values derived from the display metrics are shared by all instances with this density
+        mConfig = LayoutConfig.get(context);
+        mTouchSlop = mConfig.touchSlop;
+        mMediumAnimationDuration = mConfig.mediumAnimationDuration;
+
+        setWillNotDraw(false);
+        mDecelerateInterpolator = new DecelerateInterpolator(DECELERATE_INTERPOLATION_FACTOR);
+
+        final TypedArray a = context.obtainStyledAttributes(attrs,
+                R.styleable.SwipeHRefreshLayout, R.attr.swipeHRefreshLayoutStyle, 0);
+        final int size = a.getInt(R.styleable.SwipeHRefreshLayout_hsrlSize, DEFAULT);
+        mCircleDiameter = size == LARGE ? mConfig.circleDiameterLarge : mConfig.circleDiameter;
+
+        createProgressView();
+        if (size == LARGE) {
+            mProgress.setStyle(LARGE);
+        }
+        setChildrenDrawingOrderEnabled(true);
+        // the absolute offset has to take into account that the circle starts at an offset
+        mSpinnerOffsetEnd = mConfig.spinnerOffsetEnd;
+        mTotalDragDistance = mSpinnerOffsetEnd;
+        mNestedScrollingParentHelper = new NestedScrollingParentHelper(this);
+
+        mNestedScrollingChildHelper = new NestedScrollingChildHelper(this);
+        setNestedScrollingEnabled(true);
+
+        mOriginalOffsetLeft = -mCircleDiameter;
+        applyStyledAttributes(a);
+        mCurrentTargetOffsetLeft = mOriginalOffsetLeft;
+        moveToStart(1.0f);
+
+        setEnabled(a.getBoolean(R.styleable.SwipeHRefreshLayout_android_enabled, true));
+        a.recycle();
+    }
+
+    private void applyStyledAttributes(TypedArray a) {
+        mScale = a.getBoolean(R.styleable.SwipeHRefreshLayout_hsrlProgressViewScale, false);
+        if (a.hasValue(R.styleable.SwipeHRefreshLayout_hsrlProgressViewStartOffset)
+                || a.hasValue(R.styleable.SwipeHRefreshLayout_hsrlProgressViewEndOffset)) {
+            mOriginalOffsetLeft = a.getDimensionPixelOffset(
+                    R.styleable.SwipeHRefreshLayout_hsrlProgressViewStartOffset,
+                    mOriginalOffsetLeft);
+            mSpinnerOffsetEnd = a.getDimensionPixelOffset(
+                    R.styleable.SwipeHRefreshLayout_hsrlProgressViewEndOffset, mSpinnerOffsetEnd);
+            mUsingCustomStart = true;
+        }
+        final int colorsId = a.getResourceId(R.styleable.SwipeHRefreshLayout_hsrlColorScheme, 0);
+        if (colorsId != 0) {
+            final TypedArray colors = getResources().obtainTypedArray(colorsId);
+            final int[] colorScheme = new int[colors.length()];
+            for (int i = 0; i < colorScheme.length; i++) {
+                colorScheme[i] = colors.getColor(i, 0);
+            }
+            colors.recycle();
+            mProgress.setColorSchemeColors(colorScheme);
+        }
+        if (a.hasValue(R.styleable.SwipeHRefreshLayout_hsrlProgressBackgroundColor)) {
+            mCircleView.setBackgroundColor(a.getColor(
+                    R.styleable.SwipeHRefreshLayout_hsrlProgressBackgroundColor, CIRCLE_BG_LIGHT));
+        }
+        mCustomSlingshotDistance = a.getDimensionPixelSize(
+                R.styleable.SwipeHRefreshLayout_hsrlSlingshotDistance, mCustomSlingshotDistance);
+        mTotalDragDistance = a.getDimensionPixelSize(
+                R.styleable.SwipeHRefreshLayout_hsrlDistanceToTriggerSync,
+                (int) mTotalDragDistance);
+    }
+
+    @Override
+    protected int getChildDrawingOrder(int childCount, int i) {
+        if (mCircleViewIndex < 0) {
+            return i;
+        } else if (i == childCount - 1) {
+            // Draw the selected child last
+            return mCircleViewIndex;
+        } else if (i >= mCircleViewIndex) {
+            // Move the children after the selected child earlier one
+            return i + 1;
+        } else {
+            // Keep the children before the selected child the same
+            return i;
+        }
+    }
+
+    private void createProgressView() {
+        mCircleView = new SwipeCircleImageView(getContext(), CIRCLE_BG_LIGHT);
+        mProgress = new IndicatorDrawable(getContext());
+        mProgress.setStyle(DEFAULT);
+        mCircleView.setImageDrawable(mProgress);
+        mCircleView.setVisibility(View.GONE);
+        addView(mCircleView);
+    }
+
+    /**
+     * Replace the renderer used to draw the progress indicator, for example with a cheaper one
+     * on low-end devices. The color scheme, size and current progress are carried over.
+     *
+     * @param renderer Renderer that draws the indicator.
+     */
+    public void setIndicatorRenderer(@NonNull IndicatorRenderer renderer) {
+        mProgress.setRenderer(renderer);
+    }
+
+    /**
+     * @return The renderer currently used to draw the progress indicator.
+     */
+    @NonNull
+    public IndicatorRenderer getIndicatorRenderer() {
+        return mProgress.getRenderer();
+    }
+
+    public void setHorizental() {
+        if (mCircleView != null) {
+            ((LayoutParams) mCircleView.getLayoutParams()).gravity = Gravity.START;
+        }
+    }
+
+    /**
+     * Set the listener to be notified when a refresh is triggered via the swipe
+     * gesture.
+     */
+    public void setOnRefreshListener(@Nullable OnRefreshListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Ignore swipe gestures for a while after a refresh completed, to protect the backend from
+     * repeated pulls. Within the interval a completed swipe settles back without calling
+     * {@link OnRefreshListener#onRefresh()}, and the {@link OnRefreshThrottledListener} is
+     * notified instead.
+     *
+     * @param intervalMillis Minimum time between two refreshes, or 0 to always refresh.
+     */
+    public void setMinRefreshInterval(long intervalMillis) {
+        setMinRefreshInterval(intervalMillis, null);
+    }
+
+    /**
+     * Like {@link #setMinRefreshInterval(long)}, but shares the last refresh time with every
+     * layout in the process using the same key, for example all carousels showing one feed.
+     *
+     * @param intervalMillis Minimum time between two refreshes, or 0 to always refresh.
+     * @param sharedKey      Key under which the last refresh time is shared, or null to keep it
+     *                       per layout.
+     */
+    public void setMinRefreshInterval(long intervalMillis, @Nullable String sharedKey) {
+        mMinRefreshInterval = intervalMillis;
+        mRefreshThrottleKey = sharedKey;
+    }
+
+    /**
+     * Refresh this layout in batches with the other layouts of a group. Refreshes triggered by
+     * the swipe gesture are then delivered to the coordinator's
+     * {@link RefreshCoordinator.OnBatchRefreshListener} instead of the
+     * {@link OnRefreshListener}.
+     *
+     * @param coordinator Coordinator to join, or null to leave the current one.
+     * @param groupKey    Group to refresh with. Required if coordinator is not null.
+     */
+    public void setRefreshCoordinator(@Nullable RefreshCoordinator coordinator,
+            @Nullable String groupKey) {
+        if (coordinator != null && groupKey == null) {
+            throw new IllegalArgumentException("A group key is required");
+        }
+        if (mCoordinator != null) {
+            mCoordinator.unregister(mCoordinatorGroup, this);
+        }
+        mCoordinator = coordinator;
+        mCoordinatorGroup = groupKey;
+        if (coordinator != null && ViewCompat.isAttachedToWindow(this)) {
+            coordinator.register(groupKey, this);
+        }
+    }
+
+    /**
+     * Set the listener to be notified when the swipe gesture triggers a refresh, with the stage
+     * the pull reached. It is called instead of the {@link OnRefreshListener}.
+     *
+     * @see #setRefreshStages(float...)
+     */
+    public void setOnStagedRefreshListener(@Nullable OnStagedRefreshListener listener) {
+        mStagedListener = listener;
+    }
+
+    /**
+     * Split pulls past the refresh trigger point into stages, so that a short pull can run a
+     * cheap refresh and a long one a full reload. Stage 0 starts at the trigger point; stage
+     * {@code i + 1} starts once the pull goes {@code slingshotFractions[i]} slingshot distances
+     * further, where the tension of the indicator reaches its maximum at 2. The indicator
+     * switches to the next scheme color and plays a haptic tick when a pull enters a new stage.
+     *
+     * @param slingshotFractions Increasing start of each stage after the first, from 0 to 2.
+     */
+    public void setRefreshStages(@NonNull float... slingshotFractions) {
+        mRefreshStages = slingshotFractions;
+    }
+
+    /**
+     * @return The stage reached by the pull that triggered the current refresh, or 0 if it was
+     * not started by a swipe.
+     */
+    public int getRefreshStage() {
+        return mRefreshStage;
+    }
+
+    private int computePullStage(float overscrollLeft) {
+        if (overscrollLeft <= mTotalDragDistance) {
+            return -1;
+        }
+        final float tension = (overscrollLeft - mTotalDragDistance) / getSlingshotDistance();
+        int stage = 0;
+        while (stage < mRefreshStages.length && tension >= mRefreshStages[stage]) {
+            stage++;
+        }
+        return stage;
+    }
+
+    /**
+     * Set the listener to be notified of the pull distance while the indicator moves.
+     */
+    public void setOnPullProgressListener(@Nullable OnPullProgressListener listener) {
+        mPullProgressListener = listener;
+    }
+
+    /**
+     * Set the listener to be notified when a swipe gesture is throttled.
+     */
+    public void setOnRefreshThrottledListener(@Nullable OnRefreshThrottledListener listener) {
+        mThrottledListener = listener;
+    }
+
+    /**
+     * @return {@link SystemClock#elapsedRealtime()} at which the last refresh completed, or 0 if
+     * there was none.
+     */
+    public long getLastRefreshTime() {
+        if (mRefreshThrottleKey != null) {
+            final Long time = sSharedRefreshTimes.get(mRefreshThrottleKey);
+            return time != null ? time : 0;
+        }
+        return mLastRefreshTime;
+    }
+
+    /**
+     * Set when the content was last refreshed, for example to restore it after the layout was
+     * recreated or when the data was loaded by other means.
+     *
+     * @param elapsedRealtime {@link SystemClock#elapsedRealtime()} of the last refresh.
+     */
+    public void setLastRefreshTime(long elapsedRealtime) {
+        mLastRefreshTime = elapsedRealtime;
+        if (mRefreshThrottleKey != null) {
+            sSharedRefreshTimes.put(mRefreshThrottleKey, elapsedRealtime);
+        }
+        scheduleIdleRefresh();
+    }
+
+    /**
+     * Refresh stale content silently while the main thread is idle, instead of waiting for a
+     * swipe. Once the last refresh is older than the given age and the layout is visible, the
+     * {@link OnRefreshListener} (or the {@link RefreshCoordinator}) is called without showing
+     * the indicator; call {@link #setRefreshing(boolean) setRefreshing(false)} when done as
+     * usual. Layouts that have never refreshed are left alone, and nothing is scheduled while
+     * the layout is detached or hidden.
+     *
+     * @param ttlMillis Age of the content after which it is refreshed, or 0 to disable.
+     */
+    public void setIdleRefreshInterval(long ttlMillis) {
+        mIdleRefreshTtl = ttlMillis;
+        scheduleIdleRefresh();
+    }
+
+    private boolean canIdleRefresh() {
+        return mIdleRefreshTtl > 0 && mState <= STATE_RETURNING && !mIdleRefreshing && isEnabled()
+                && (mListener != null || mStagedListener != null || mCoordinator != null)
+                && ViewCompat.isAttachedToWindow(this)
+                && getWindowVisibility() == View.VISIBLE && isShown();
+    }
+
+    /**
+     * Queues the idle refresh once the content becomes stale, or cancels it if the layout can
+     * no longer refresh silently.
+     */
+    private void scheduleIdleRefresh() {
+        // Visibility callbacks can arrive from the View constructor before we are set up
+        if (mIdleRefreshTtl <= 0 && !mIdleRefreshHandlerAdded) {
+            return;
+        }
+        removeCallbacks(mScheduleIdleRefreshRunnable);
+        final long lastRefreshTime = getLastRefreshTime();
+        if (!canIdleRefresh() || lastRefreshTime == 0) {
+            cancelIdleRefresh();
+            return;
+        }
+        final long delay = lastRefreshTime + mIdleRefreshTtl - SystemClock.elapsedRealtime();
+        if (delay > 0) {
+            cancelIdleRefresh();
+            postDelayed(mScheduleIdleRefreshRunnable, delay);
+        } else if (!mIdleRefreshHandlerAdded) {
+            mIdleRefreshHandlerAdded = true;
+            Looper.myQueue().addIdleHandler(mIdleRefreshHandler);
+        }
+    }
+
+    private void cancelIdleRefresh() {
+        removeCallbacks(mScheduleIdleRefreshRunnable);
+        if (mIdleRefreshHandlerAdded) {
+            mIdleRefreshHandlerAdded = false;
+            Looper.myQueue().removeIdleHandler(mIdleRefreshHandler);
+        }
+    }
+
+    private boolean isRefreshThrottled() {
+        final long lastRefreshTime = getLastRefreshTime();
+        return mMinRefreshInterval > 0 && lastRefreshTime > 0
+                && SystemClock.elapsedRealtime() - lastRefreshTime < mMinRefreshInterval;
+    }
+
+    /**
+     * Notify the widget that refresh state has changed. Do not call this when
+     * refresh is triggered by a swipe gesture.
+     *
+     * @param refreshing Whether or not the view should show refresh progress.
+     */
+    public void setRefreshing(boolean refreshing) {
+        if (mIdleRefreshing) {
+            // A silent idle refresh completes, or from now on shows the indicator
+            mIdleRefreshing = false;
+            if (!refreshing) {
+                clearRefreshProgress();
+                onRefreshComplete();
+                return;
+            }
+        }
+        updateSystemAnimationMode();
+        if (refreshing && mState != STATE_REFRESHING) {
+            // Called during startup, for example from onCreate(): keep the indicator out of
+            // the first frame
+            mShowRefreshingPending = !ViewCompat.isLaidOut(this);
+            setState(STATE_REFRESHING);
+            mRefreshStage = 0;
+            mNotify = false;
+            clearRefreshProgress();
+            beginRefreshTrace();
+            if (mShowRefreshingPending) {
+                addFirstFrameListener();
+            } else {
+                showRefreshingIndicator();
+            }
+        } else {
+            setRefreshing(refreshing, false /* notify */);
+        }
+    }
+
+    private void addFirstFrameListener() {
+        if (!mFirstFrameListenerAdded) {
+            mFirstFrameListenerAdded = true;
+            getViewTreeObserver().addOnPreDrawListener(mFirstFrameListener);
+        }
+    }
+
+    private void removeFirstFrameListener() {
+        if (mFirstFrameListenerAdded) {
+            mFirstFrameListenerAdded = false;
+            getViewTreeObserver().removeOnPreDrawListener(mFirstFrameListener);
+        }
+    }
+
+    private void showRefreshingIndicator() {
+        // scale and show
+        setTargetOffsetLeftAndRight(getRefreshingOffset() - mCurrentTargetOffsetLeft);
+        updateTargetLayer();
+        startScaleUpAnimation(mRefreshListener);
+    }
+
+    /**
+     * @return Left of the indicator once it has settled for refreshing.
+     */
+    private int getRefreshingOffset() {
+        return mUsingCustomStart ? mSpinnerOffsetEnd : mSpinnerOffsetEnd + mOriginalOffsetLeft;
+    }
+
+    /**
+     * Puts the layout straight into the refreshing state after it was recreated, with the
+     * indicator at rest at the given position and without calling any refresh listener. The
+     * refresh ends as usual with {@link #setRefreshing(boolean) setRefreshing(false)}.
      */
-    public void setSize(int size) {
-        if (size != CircularProgressDrawable.LARGE && size != CircularProgressDrawable.DEFAULT) {
+    private void restoreRefreshing(int indicatorLeft, float progress) {
+        if (!setState(STATE_REFRESHING)) {
             return;
         }
-        final DisplayMetrics metrics = getResources().getDisplayMetrics();
-        if (size == CircularProgressDrawable.LARGE) {
-            mCircleDiameter = (int) (CIRCLE_DIAMETER_LARGE * metrics.density);
+        mNotify = false;
+        mRefreshStage = 0;
+        mRefreshProgress = progress;
+        beginRefreshTrace();
+        ensureTarget();
+        if (ViewCompat.isLaidOut(this)) {
+            setTargetOffsetLeftAndRight(indicatorLeft - mCurrentTargetOffsetLeft);
         } else {
-            mCircleDiameter = (int) (CIRCLE_DIAMETER * metrics.density);
+            // The circle is placed here by the first layout
+            mCurrentTargetOffsetLeft = indicatorLeft;
         }
-        // force the bounds of the progress circle inside the circle view to
-        // update by setting it to null before updating its size and then
-        // re-setting it
-        mCircleView.setImageDrawable(null);
-        mProgress.setStyle(size);
-        mCircleView.setImageDrawable(mProgress);
+        mCircleView.setVisibility(View.VISIBLE);
+        setAnimationProgress(1f);
+        mProgress.setAlpha(MAX_ALPHA);
+        startRefreshingAnimation();
+        dispatchSettleProgress(PULL_STATE_REFRESHING);
     }
 
     /**
-     * Simple constructor to use when creating a SwipeRefreshLayout from code.
+     * Drops an indicator that setRefreshing(true) has not shown yet.
      *
-     * @param context
+     * @return Whether one was pending.
      */
-    public SwipeHRefreshLayout(@NonNull Context context) {
-        this(context, null);
+    private boolean cancelPendingRefreshingIndicator() {
+        if (!mShowRefreshingPending) {
+            return false;
+        }
+        mShowRefreshingPending = false;
+        removeFirstFrameListener();
+        removeCallbacks(mShowRefreshingRunnable);
+        return true;
     }
 
     /**
-     * Constructor that is called when inflating SwipeRefreshLayout from XML.
+     * Publish the progress of the current refresh, for example while its data is streamed in
+     * chunks. The indicator then shows a determinate arc instead of the indeterminate animation
+     * until the refresh ends. Values published within one frame are coalesced so only the
+     * latest one is drawn. This can be called from any thread.
      *
-     * @param context
-     * @param attrs
+     * @param progress Progress from 0 to 1, or a negative value to return to the indeterminate
+     *                 animation.
      */
-    public SwipeHRefreshLayout(@NonNull Context context, @Nullable AttributeSet attrs) {
-        super(context, attrs);
-
-        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
-
-        mMediumAnimationDuration = getResources().getInteger(
-                android.R.integer.config_mediumAnimTime);
-
-        setWillNotDraw(false);
-        mDecelerateInterpolator = new DecelerateInterpolator(DECELERATE_INTERPOLATION_FACTOR);
-
-        final DisplayMetrics metrics = getResources().getDisplayMetrics();
-        mCircleDiameter = (int) (CIRCLE_DIAMETER * metrics.density);
-
-        createProgressView();
-        setChildrenDrawingOrderEnabled(true);
-        // the absolute offset has to take into account that the circle starts at an offset
-        mSpinnerOffsetEnd = (int) (DEFAULT_CIRCLE_TARGET * metrics.density);
-        mTotalDragDistance = mSpinnerOffsetEnd;
-        mNestedScrollingParentHelper = new NestedScrollingParentHelper(this);
-
-        mNestedScrollingChildHelper = new NestedScrollingChildHelper(this);
-        setNestedScrollingEnabled(true);
-
-        mOriginalOffsetLeft = mCurrentTargetOffsetLeft = -mCircleDiameter;
-        moveToStart(1.0f);
-
-        final TypedArray a = context.obtainStyledAttributes(attrs, LAYOUT_ATTRS);
-        setEnabled(a.getBoolean(0, true));
-        a.recycle();
-    }
-
-    @Override
-    protected int getChildDrawingOrder(int childCount, int i) {
-        if (mCircleViewIndex < 0) {
-            return i;
-        } else if (i == childCount - 1) {
-            // Draw the selected child last
-            return mCircleViewIndex;
-        } else if (i >= mCircleViewIndex) {
-            // Move the children after the selected child earlier one
-            return i + 1;
-        } else {
-            // Keep the children before the selected child the same
-            return i;
-        }
-    }
-
-    private void createProgressView() {
-        mCircleView = new SwipeCircleImageView(getContext(), CIRCLE_BG_LIGHT);
-        mProgress = new CircularProgressDrawable(getContext());
-        mProgress.setStyle(CircularProgressDrawable.DEFAULT);
-        mCircleView.setImageDrawable(mProgress);
-        mCircleView.setVisibility(View.GONE);
-        addView(mCircleView);
-    }
-
-    public void setHorizental() {
-        if (mCircleView != null) {
-            ((LayoutParams) mCircleView.getLayoutParams()).gravity = Gravity.START;
+    public void setRefreshProgress(float progress) {
+        mPendingRefreshProgress = progress;
+        if (mRefreshProgressPosted.compareAndSet(false, true)) {
+            ViewCompat.postOnAnimation(this, mApplyRefreshProgressRunnable);
         }
     }
 
     /**
-     * Set the listener to be notified when a refresh is triggered via the swipe
-     * gesture.
+     * @return The progress last drawn for the current refresh, or a negative value while it is
+     * indeterminate.
      */
-    public void setOnRefreshListener(@Nullable OnRefreshListener listener) {
-        mListener = listener;
+    public float getRefreshProgress() {
+        return mRefreshProgress;
     }
 
     /**
-     * Notify the widget that refresh state has changed. Do not call this when
-     * refresh is triggered by a swipe gesture.
-     *
-     * @param refreshing Whether or not the view should show refresh progress.
+     * Forgets the progress of the previous refresh, including a value not applied yet, so the
+     * next refresh starts indeterminate.
      */
-    public void setRefreshing(boolean refreshing) {
-        if (refreshing && mRefreshing != refreshing) {
-            // scale and show
-            mRefreshing = refreshing;
-            int endTarget = 0;
-            if (!mUsingCustomStart) {
-                endTarget = mSpinnerOffsetEnd + mOriginalOffsetLeft;
-            } else {
-                endTarget = mSpinnerOffsetEnd;
+    private void clearRefreshProgress() {
+        mRefreshProgress = -1;
+        mPendingRefreshProgress = -1;
+    }
+
+    private void applyRefreshProgress(float progress) {
+        final boolean wasDeterminate = mRefreshProgress >= 0;
+        mRefreshProgress = progress < 0 ? -1 : Math.min(progress, 1f);
+        if (!mRefreshingAnimationStarted) {
+            // Picked up by startRefreshingAnimation() once the circle has settled
+            return;
+        }
+        if (mRefreshProgress >= 0) {
+            if (mRenderThreadSpinner != null
+                    && mCircleView.getDrawable() == mRenderThreadSpinner) {
+                ((Animatable) mRenderThreadSpinner).stop();
+                mCircleView.setImageDrawable(mProgress);
             }
-            setTargetOffsetLeftAndRight(endTarget - mCurrentTargetOffsetLeft);
-            mNotify = false;
-            startScaleUpAnimation(mRefreshListener);
-        } else {
-            setRefreshing(refreshing, false /* notify */);
+            mProgress.showProgress(mRefreshProgress);
+        } else if (wasDeterminate) {
+            resumeRefreshingAnimation();
+            applyRefreshingAnimationMode(resolveRefreshingAnimationMode());
+            mRefreshingAnimationPaused = false;
+            updateRefreshingAnimationVisibility();
         }
     }
 
@@ -432,7 +1731,8 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
                 setAnimationProgress(interpolatedTime);
             }
         };
-        mScaleAnimation.setDuration(mMediumAnimationDuration);
+        mScaleAnimation.setDuration(settleDuration(mMediumAnimationDuration));
+        mScaleAnimation.setAnimationListener(mSettleTraceListener);
         if (listener != null) {
             mCircleView.setAnimationListener(listener);
         }
@@ -448,21 +1748,84 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
     void setAnimationProgress(float progress) {
         mCircleView.setScaleX(progress);
         mCircleView.setScaleY(progress);
+        updateContentFollow();
     }
 
     private void setRefreshing(boolean refreshing, final boolean notify) {
-        if (mRefreshing != refreshing) {
+        if (isRefreshing() != refreshing) {
             mNotify = notify;
             ensureTarget();
-            mRefreshing = refreshing;
-            if (mRefreshing) {
+            if (refreshing) {
+                setState(STATE_REFRESHING);
+                clearRefreshProgress();
+                beginRefreshTrace();
                 animateOffsetToCorrectPosition(mCurrentTargetOffsetLeft, mRefreshListener);
             } else {
-                startScaleDownAnimation(mRefreshListener);
+                endRefresh(true /* completed */);
             }
         }
     }
 
+    /**
+     * Hides the refreshing indicator.
+     *
+     * @param completed Whether to record the refresh as done, instead of dropped before any
+     *                  listener was called.
+     */
+    private void endRefresh(boolean completed) {
+        setState(STATE_RETURNING);
+        clearRefreshProgress();
+        endRefreshTrace();
+        if (completed) {
+            onRefreshComplete();
+        } else {
+            mRefreshStartTime = 0;
+        }
+        if (cancelPendingRefreshingIndicator()) {
+            // Finished before the indicator was ever shown
+            setState(STATE_IDLE);
+        } else {
+            startScaleDownAnimation(mRefreshListener);
+        }
+    }
+
+    /**
+     * Shows the indicator and refreshes as a swipe would, for
+     * {@link RefreshCoordinator#refreshAll(String)}.
+     */
+    void startGroupRefresh() {
+        // Already requested by an idle refresh, which only needs the indicator
+        final boolean requested = mIdleRefreshing;
+        setRefreshing(true);
+        if (!requested) {
+            dispatchRefresh();
+        }
+    }
+
+    /**
+     * Ends a refresh that the {@link RefreshCoordinator} dropped before calling its listener,
+     * without marking the content as refreshed.
+     */
+    void cancelRefresh() {
+        if (mIdleRefreshing) {
+            mIdleRefreshing = false;
+            mRefreshStartTime = 0;
+            clearRefreshProgress();
+            scheduleIdleRefresh();
+        } else if (isRefreshing()) {
+            endRefresh(false /* completed */);
+        }
+    }
+
+    private void onRefreshComplete() {
+        if (mRefreshStartTime > 0) {
+            RefreshMetrics.record(RefreshMetrics.HISTOGRAM_REFRESH_DURATION,
+                    SystemClock.uptimeMillis() - mRefreshStartTime);
+            mRefreshStartTime = 0;
+        }
+        setLastRefreshTime(SystemClock.elapsedRealtime());
+    }
+
     void startScaleDownAnimation(Animation.AnimationListener listener) {
         mScaleDownAnimation = new Animation() {
             @Override
@@ -470,7 +1833,8 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
                 setAnimationProgress(1 - interpolatedTime);
             }
         };
-        mScaleDownAnimation.setDuration(SCALE_DOWN_DURATION);
+        mScaleDownAnimation.setDuration(settleDuration(SCALE_DOWN_DURATION));
+        mScaleDownAnimation.setAnimationListener(mSettleTraceListener);
         mCircleView.setAnimationListener(listener);
         mCircleView.clearAnimation();
         mCircleView.startAnimation(mScaleDownAnimation);
@@ -485,6 +1849,11 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
     }
 
     private Animation startAlphaAnimation(final int startingAlpha, final int endingAlpha) {
+        if (mQualityReduced) {
+            // Jump straight to the target alpha instead of fading
+            mProgress.setAlpha(endingAlpha);
+            return null;
+        }
         Animation alpha = new Animation() {
             @Override
             public void applyTransformation(float interpolatedTime, Transformation t) {
@@ -492,7 +1861,7 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
                         (int) (startingAlpha + ((endingAlpha - startingAlpha) * interpolatedTime)));
             }
         };
-        alpha.setDuration(ALPHA_ANIMATION_DURATION);
+        alpha.setDuration(settleDuration(ALPHA_ANIMATION_DURATION));
         // Clear out the previous animation listeners.
         mCircleView.setAnimationListener(null);
         mCircleView.clearAnimation();
@@ -567,7 +1936,7 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
      * progress.
      */
     public boolean isRefreshing() {
-        return mRefreshing;
+        return mState == STATE_REFRESHING;
     }
 
     private void ensureTarget() {
@@ -595,6 +1964,12 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
 
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        RefreshTrace.beginSection(RefreshTrace.LAYOUT);
+        layoutTargetAndCircle();
+        RefreshTrace.endSection();
+    }
+
+    private void layoutTargetAndCircle() {
         final int width = getMeasuredWidth();
         final int height = getMeasuredHeight();
         if (getChildCount() == 0) {
@@ -620,7 +1995,13 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
 
     @Override
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        RefreshTrace.beginSection(RefreshTrace.MEASURE);
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        measureTargetAndCircle();
+        RefreshTrace.endSection();
+    }
+
+    private void measureTargetAndCircle() {
         if (mTarget == null) {
             ensureTarget();
         }
@@ -679,17 +2060,24 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
 
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
-        ensureTarget();
+        RefreshTrace.beginSection(RefreshTrace.INTERCEPT_TOUCH);
+        try {
+            return interceptTouchEvent(ev);
+        } finally {
+            RefreshTrace.endSection();
+        }
+    }
 
+    private boolean interceptTouchEvent(MotionEvent ev) {
         final int action = ev.getActionMasked();
-        int pointerIndex;
-
-        if (mReturningToStart && action == MotionEvent.ACTION_DOWN) {
-            mReturningToStart = false;
+        if (isGestureRejected(ev, action)) {
+            return false;
         }
+        ensureTarget();
 
-        if (!isEnabled() || mReturningToStart || canChildScrollLeft()
-                || mRefreshing || mNestedScrollInProgress) {
+        int pointerIndex;
+
+        if (mState > STATE_DRAGGING || !isEnabled() || canChildScrollLeft()) {
             // Fail fast if we're not in a state where a swipe is possible
             return false;
         }
@@ -698,13 +2086,14 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
             case MotionEvent.ACTION_DOWN:
                 setTargetOffsetLeftAndRight(mOriginalOffsetLeft - mCircleView.getLeft());
                 mActivePointerId = ev.getPointerId(0);
-                mIsBeingDragged = false;
+                cancelGesture();
 
                 pointerIndex = ev.findPointerIndex(mActivePointerId);
                 if (pointerIndex < 0) {
                     return false;
                 }
                 mInitialDownX = ev.getX(pointerIndex);
+                mInitialDownY = ev.getY(pointerIndex);
                 break;
 
             case MotionEvent.ACTION_MOVE:
@@ -717,8 +2106,7 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
                 if (pointerIndex < 0) {
                     return false;
                 }
-                final float x = ev.getX(pointerIndex);
-                startDragging(x);
+                startDragging(ev.getX(pointerIndex), ev.getY(pointerIndex));
                 break;
 
             case MotionEvent.ACTION_POINTER_UP:
@@ -727,12 +2115,12 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
 
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
-                mIsBeingDragged = false;
+                cancelGesture();
                 mActivePointerId = INVALID_POINTER;
                 break;
         }
 
-        return mIsBeingDragged;
+        return mState == STATE_DRAGGING;
     }
 
     @Override
@@ -751,7 +2139,7 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
     // NestedScrollingParent
     @Override
     public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
-        return isEnabled() && !mReturningToStart && !mRefreshing
+        return mState <= STATE_RETURNING && !mGestureRejected && isEnabled()
                 && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_HORIZONTAL) != 0;
     }
 
@@ -762,7 +2150,7 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
         // Dispatch up to the nested parent
         startNestedScroll(axes & ViewCompat.SCROLL_AXIS_HORIZONTAL);
         mTotalUnconsumed = 0;
-        mNestedScrollInProgress = true;
+        setState(STATE_NESTED_SCROLLING);
     }
 
     @Override
@@ -778,6 +2166,9 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
                 consumed[0] = dx;
             }
             moveSpinner(mTotalUnconsumed);
+            if (mTotalUnconsumed == 0) {
+                onIndicatorDisplacementChanged();
+            }
         }
 
         // If a client layout is using a custom start position for the circle
@@ -805,13 +2196,13 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
     @Override
     public void onStopNestedScroll(View target) {
         mNestedScrollingParentHelper.onStopNestedScroll(target);
-        mNestedScrollInProgress = false;
         // Finish the spinner for nested scrolling if we ever consumed any
         // unconsumed nested scroll
         if (mTotalUnconsumed > 0) {
             finishSpinner(mTotalUnconsumed);
             mTotalUnconsumed = 0;
         }
+        endNestedScroll();
         // Dispatch up our nested parent
         stopNestedScroll();
     }
@@ -830,7 +2221,15 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
         // This is a decent indication of whether we should take over the event stream or not.
         final int dx = dxUnconsumed + mParentOffsetInWindow[0];
         if (dx < 0 && !canChildScrollLeft()) {
+            if (mReturnUnderNestedScroll) {
+                mReturnUnderNestedScroll = false;
+                takeOverReturningIndicator();
+            }
+            final boolean pullStarted = mTotalUnconsumed == 0;
             mTotalUnconsumed += Math.abs(dx);
+            if (pullStarted) {
+                onIndicatorDisplacementChanged();
+            }
             moveSpinner(mTotalUnconsumed);
         }
     }
@@ -902,17 +2301,14 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
     }
 
     private void moveSpinner(float overscrollLeft) {
-        mProgress.setArrowEnabled(true);
+        RefreshTrace.beginSection(RefreshTrace.MOVE_SPINNER);
+        mProgress.setArrowEnabled(!mQualityReduced);
         float originalDragPercent = overscrollLeft / mTotalDragDistance;
 
         float dragPercent = Math.min(1f, Math.abs(originalDragPercent));
         float adjustedPercent = (float) Math.max(dragPercent - .4, 0) * 5 / 3;
         float extraOS = Math.abs(overscrollLeft) - mTotalDragDistance;
-        float slingshotDist = mCustomSlingshotDistance > 0
-                ? mCustomSlingshotDistance
-                : (mUsingCustomStart
-                ? mSpinnerOffsetEnd - mOriginalOffsetLeft
-                : mSpinnerOffsetEnd);
+        float slingshotDist = getSlingshotDistance();
         float tensionSlingshotPercent = Math.max(0, Math.min(extraOS, slingshotDist * 2)
                 / slingshotDist);
         float tensionPercent = (float) ((tensionSlingshotPercent / 4) - Math.pow(
@@ -945,58 +2341,136 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
             }
         }
         float strokeStart = adjustedPercent * .8f;
+        float rotation = (-0.25f + .4f * adjustedPercent + tensionPercent * 2) * .5f;
+        if (mQualityReduced) {
+            // Only redraw the ring when it changed by a visible step
+            strokeStart = Math.round(strokeStart * REDUCED_QUALITY_STEPS)
+                    / (float) REDUCED_QUALITY_STEPS;
+            rotation = Math.round(rotation * REDUCED_QUALITY_STEPS)
+                    / (float) REDUCED_QUALITY_STEPS;
+        }
         mProgress.setStartEndTrim(0f, Math.min(MAX_PROGRESS_ANGLE, strokeStart));
         mProgress.setArrowScale(Math.min(1f, adjustedPercent));
-
-        float rotation = (-0.25f + .4f * adjustedPercent + tensionPercent * 2) * .5f;
         mProgress.setProgressRotation(rotation);
         setTargetOffsetLeftAndRight(targetX - mCurrentTargetOffsetLeft);
+        if (mRefreshStages.length > 0) {
+            final int stage = computePullStage(overscrollLeft);
+            if (stage != mPullStage) {
+                if (stage > mPullStage && stage > 0) {
+                    performHapticFeedback(HapticFeedbackConstants.VIRTUAL_KEY);
+                }
+                mPullStage = stage;
+                mProgress.setDragColor(Math.max(0, stage));
+            }
+        }
+        if (mPullProgressListener != null) {
+            mPullProgressListener.onPullProgress(overscrollLeft, originalDragPercent,
+                    tensionPercent, PULL_STATE_DRAGGING);
+        }
+        RefreshTrace.endSection();
+    }
+
+    private float getSlingshotDistance() {
+        return mCustomSlingshotDistance > 0
+                ? mCustomSlingshotDistance
+                : (mUsingCustomStart
+                ? mSpinnerOffsetEnd - mOriginalOffsetLeft
+                : mSpinnerOffsetEnd);
+    }
+
+    /**
+     * Reports the indicator position to the {@link OnPullProgressListener} while it is not
+     * driven by a drag, mapped back onto the drag values that would put it there.
+     */
+    private void dispatchSettleProgress(int state) {
+        if (mPullProgressListener == null) {
+            return;
+        }
+        final float slingshotDist = getSlingshotDistance();
+        final float dragPercent = slingshotDist > 0
+                ? Math.max(0, Math.min(1f,
+                (mCurrentTargetOffsetLeft - mOriginalOffsetLeft) / slingshotDist))
+                : 0;
+        mPullProgressListener.onPullProgress(dragPercent * mTotalDragDistance, dragPercent, 0,
+                state);
     }
 
     private void finishSpinner(float overscrollLeft) {
-        if (overscrollLeft > mTotalDragDistance) {
+        updateSystemAnimationMode();
+        final boolean triggered = overscrollLeft > mTotalDragDistance;
+        RefreshMetrics.recordRelease(triggered);
+        RefreshMetrics.record(RefreshMetrics.HISTOGRAM_PULL_DISTANCE,
+                (long) (overscrollLeft / mConfig.density));
+        if (triggered && mIdleRefreshing) {
+            // Already refreshing silently, only show the indicator for it
+            mIdleRefreshing = false;
+            setRefreshing(true, false /* notify */);
+            return;
+        }
+        if (triggered && isRefreshThrottled()) {
+            // The content is still fresh: settle back without refreshing
+            cancelSpinner();
+            if (mThrottledListener != null) {
+                mThrottledListener.onRefreshThrottled(getLastRefreshTime());
+            }
+            return;
+        }
+        mReleaseTime = triggered ? SystemClock.uptimeMillis() : 0;
+        if (triggered) {
+            mRefreshStage = Math.max(0, computePullStage(overscrollLeft));
             setRefreshing(true, true /* notify */);
         } else {
-            // cancel refresh
-            mRefreshing = false;
-            mProgress.setStartEndTrim(0f, 0f);
-            Animation.AnimationListener listener = null;
-            if (!mScale) {
-                listener = new Animation.AnimationListener() {
+            cancelSpinner();
+        }
+    }
 
-                    @Override
-                    public void onAnimationStart(Animation animation) {
-                    }
+    private void cancelSpinner() {
+        // cancel refresh
+        setState(STATE_RETURNING);
+        mProgress.setStartEndTrim(0f, 0f);
+        Animation.AnimationListener listener = mReturnedListener;
+        if (!mScale) {
+            listener = new Animation.AnimationListener() {
 
-                    @Override
-                    public void onAnimationEnd(Animation animation) {
-                        if (!mScale) {
-                            startScaleDownAnimation(null);
-                        }
-                    }
+                @Override
+                public void onAnimationStart(Animation animation) {
+                }
 
-                    @Override
-                    public void onAnimationRepeat(Animation animation) {
+                @Override
+                public void onAnimationEnd(Animation animation) {
+                    if (!mScale) {
+                        startScaleDownAnimation(mReturnedListener);
                     }
+                }
 
-                };
-            }
-            animateOffsetToStartPosition(mCurrentTargetOffsetLeft, listener);
-            mProgress.setArrowEnabled(false);
+                @Override
+                public void onAnimationRepeat(Animation animation) {
+                }
+
+            };
         }
+        animateOffsetToStartPosition(mCurrentTargetOffsetLeft, listener);
+        mProgress.setArrowEnabled(false);
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
-        final int action = ev.getActionMasked();
-        int pointerIndex = -1;
+        RefreshTrace.beginSection(RefreshTrace.TOUCH);
+        try {
+            return handleTouchEvent(ev);
+        } finally {
+            RefreshTrace.endSection();
+        }
+    }
 
-        if (mReturningToStart && action == MotionEvent.ACTION_DOWN) {
-            mReturningToStart = false;
+    private boolean handleTouchEvent(MotionEvent ev) {
+        final int action = ev.getActionMasked();
+        if (isGestureRejected(ev, action)) {
+            return false;
         }
+        int pointerIndex = -1;
 
-        if (!isEnabled() || mReturningToStart || canChildScrollLeft()
-                || mRefreshing || mNestedScrollInProgress) {
+        if (mState > STATE_DRAGGING || !isEnabled() || canChildScrollLeft()) {
             // Fail fast if we're not in a state where a swipe is possible
             return false;
         }
@@ -1004,7 +2478,7 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
         switch (action) {
             case MotionEvent.ACTION_DOWN:
                 mActivePointerId = ev.getPointerId(0);
-                mIsBeingDragged = false;
+                cancelGesture();
                 break;
 
             case MotionEvent.ACTION_MOVE: {
@@ -1015,9 +2489,9 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
                 }
 
                 final float x = ev.getX(pointerIndex);
-                startDragging(x);
+                startDragging(x, ev.getY(pointerIndex));
 
-                if (mIsBeingDragged) {
+                if (mState == STATE_DRAGGING) {
                     final float overscrollLeft = (x - mInitialMotionX) * DRAG_RATE;
                     if (overscrollLeft > 0) {
                         moveSpinner(overscrollLeft);
@@ -1049,36 +2523,99 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
                     return false;
                 }
 
-                if (mIsBeingDragged) {
+                if (mState == STATE_DRAGGING) {
                     final float x = ev.getX(pointerIndex);
                     final float overscrollLeft = (x - mInitialMotionX) * DRAG_RATE;
-                    mIsBeingDragged = false;
+                    // Leaves STATE_DRAGGING for STATE_REFRESHING or STATE_RETURNING
                     finishSpinner(overscrollLeft);
                 }
                 mActivePointerId = INVALID_POINTER;
                 return false;
             }
             case MotionEvent.ACTION_CANCEL:
+                if (mState == STATE_DRAGGING) {
+                    // Don't leave the indicator stranded where the gesture was cut off
+                    cancelSpinner();
+                }
+                mActivePointerId = INVALID_POINTER;
                 return false;
         }
 
         return true;
     }
 
-    private void startDragging(float x) {
+    private void startDragging(float x, float y) {
+        if (mState == STATE_DRAGGING) {
+            return;
+        }
         final float xDiff = x - mInitialDownX;
-        if (xDiff > mTouchSlop && !mIsBeingDragged) {
+        // Without the axis lock vertical movement is ignored
+        final float yDiff = mAxisLockEnabled ? Math.abs(y - mInitialDownY) : 0;
+        if (yDiff > mTouchSlop && yDiff >= Math.abs(xDiff)) {
+            // Mostly vertical: leave the whole gesture to the child
+            mGestureRejected = true;
+            return;
+        }
+        if (xDiff > mTouchSlop && xDiff > yDiff) {
             mInitialMotionX = mInitialDownX + mTouchSlop;
-            mIsBeingDragged = true;
+            setState(STATE_DRAGGING);
             mProgress.setAlpha(STARTING_PROGRESS_ALPHA);
+        } else if (mDirectionGateEnabled && -xDiff > mTouchSlop) {
+            // Only a pull to the right can refresh
+            mGestureRejected = true;
+        }
+    }
+
+    /**
+     * Decides on ACTION_DOWN whether the gesture can start a swipe at all, so that the rest of
+     * a rejected gesture is dropped after a single check.
+     */
+    private boolean isGestureRejected(MotionEvent ev, int action) {
+        if (action == MotionEvent.ACTION_DOWN) {
+            mGestureRejected = mActivationRegion > 0 && ev.getX() > mActivationRegion;
         }
+        return mGestureRejected;
+    }
+
+    /**
+     * Limit where a swipe can start. Touches that go down further than {@code regionWidth}
+     * from the left edge of this layout are ignored until the next gesture, so scrolling the
+     * child there costs the layout nothing.
+     *
+     * @param regionWidth Width in pixels of the region along the left edge, or 0 to accept
+     *                    touches anywhere.
+     */
+    public void setActivationRegion(@Px int regionWidth) {
+        mActivationRegion = regionWidth;
+    }
+
+    /**
+     * Only start a swipe when the gesture moves more horizontally than vertically. A gesture
+     * that first leaves the touch slop mostly vertically is left to the child for good, so
+     * diagonal scrolls in vertical content are not stolen. Enabled by default.
+     *
+     * @param enabled Whether drag detection is locked to the horizontal axis.
+     */
+    public void setAxisLockEnabled(boolean enabled) {
+        mAxisLockEnabled = enabled;
+    }
+
+    /**
+     * Give up a gesture as soon as it moves left by more than the touch slop before a swipe
+     * started, instead of inspecting it until it ends.
+     *
+     * @param enabled Whether leftward gestures are rejected early.
+     */
+    public void setDirectionGateEnabled(boolean enabled) {
+        mDirectionGateEnabled = enabled;
     }
 
     private void animateOffsetToCorrectPosition(int from, AnimationListener listener) {
         mFrom = from;
         mAnimateToCorrectPosition.reset();
-        mAnimateToCorrectPosition.setDuration(ANIMATE_TO_TRIGGER_DURATION);
+        mAnimateToCorrectPosition.setDuration(settleDuration(ANIMATE_TO_TRIGGER_DURATION));
         mAnimateToCorrectPosition.setInterpolator(mDecelerateInterpolator);
+        mAnimateToCorrectPosition.setAnimationListener(mSettleTraceListener);
         if (listener != null) {
             mCircleView.setAnimationListener(listener);
         }
@@ -1093,8 +2630,9 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
         } else {
             mFrom = from;
             mAnimateToStartPosition.reset();
-            mAnimateToStartPosition.setDuration(ANIMATE_TO_START_DURATION);
+            mAnimateToStartPosition.setDuration(settleDuration(ANIMATE_TO_START_DURATION));
             mAnimateToStartPosition.setInterpolator(mDecelerateInterpolator);
+            mAnimateToStartPosition.setAnimationListener(mSettleTraceListener);
             if (listener != null) {
                 mCircleView.setAnimationListener(listener);
             }
@@ -1117,6 +2655,7 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
             int offset = targetLeft - mCircleView.getLeft();
             setTargetOffsetLeftAndRight(offset);
             mProgress.setArrowScale(1 - interpolatedTime);
+            dispatchSettleProgress(PULL_STATE_SETTLING);
         }
     };
 
@@ -1125,6 +2664,7 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
         targetLeft = (mFrom + (int) ((mOriginalOffsetLeft - mFrom) * interpolatedTime));
         int offset = targetLeft - mCircleView.getLeft();
         setTargetOffsetLeftAndRight(offset);
+        dispatchSettleProgress(PULL_STATE_SETTLING);
     }
 
     private final Animation mAnimateToStartPosition = new Animation() {
@@ -1146,7 +2686,8 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
                 moveToStart(interpolatedTime);
             }
         };
-        mScaleDownToStartAnimation.setDuration(SCALE_DOWN_DURATION);
+        mScaleDownToStartAnimation.setDuration(settleDuration(SCALE_DOWN_DURATION));
+        mScaleDownToStartAnimation.setAnimationListener(mSettleTraceListener);
         if (listener != null) {
             mCircleView.setAnimationListener(listener);
         }
@@ -1158,6 +2699,33 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
         mCircleView.bringToFront();
         ViewCompat.offsetLeftAndRight(mCircleView, offset);
         mCurrentTargetOffsetLeft = mCircleView.getLeft();
+        updateContentFollow();
+    }
+
+    /**
+     * Slide the content along with the indicator during the swipe, the refresh and the settle
+     * animations, revealing the indicator in the gap. The content is moved with
+     * {@link View#setTranslationX(float)} only, so it is never laid out again.
+     *
+     * @param enabled Whether the content follows the indicator.
+     */
+    public void setContentFollowEnabled(boolean enabled) {
+        mContentFollowEnabled = enabled;
+        ensureTarget();
+        if (enabled) {
+            updateContentFollow();
+        } else if (mTarget != null) {
+            mTarget.setTranslationX(0);
+        }
+    }
+
+    private void updateContentFollow() {
+        if (!mContentFollowEnabled || mTarget == null) {
+            return;
+        }
+        // Scaling the indicator in or out also slides the content in or out
+        final float distance = Math.max(0, mCurrentTargetOffsetLeft - mOriginalOffsetLeft);
+        mTarget.setTranslationX(distance * mCircleView.getScaleX());
     }
 
     private void onSecondaryPointerLeft(MotionEvent ev) {
@@ -1171,6 +2739,53 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
         }
     }
 
+    /**
+     * Classes that wish to run a different refresh depending on how far the swipe gesture
+     * went should implement this interface.
+     */
+    public interface OnStagedRefreshListener {
+        /**
+         * Called when a swipe gesture triggers a refresh.
+         *
+         * @param stage Stage reached by the pull, see {@link #setRefreshStages(float...)}.
+         */
+        void onRefresh(int stage);
+    }
+
+    /**
+     * Classes that wish to drive their own effects from the swipe gesture should implement
+     * this interface. It is called once per visual update of the indicator and only receives
+     * primitives, so it can run every frame without allocating.
+     */
+    public interface OnPullProgressListener {
+        /**
+         * @param overscroll     Pull distance in pixels, after the drag rate is applied. While
+         *                       settling it is derived from the indicator position.
+         * @param dragPercent    Overscroll relative to the distance that triggers a refresh,
+         *                       reaching 1 at the trigger point.
+         * @param tensionPercent Tension of the pull beyond the trigger point, from 0 to 0.5.
+         * @param state          One of {@link #PULL_STATE_IDLE}, {@link #PULL_STATE_DRAGGING},
+         *                       {@link #PULL_STATE_SETTLING} or {@link #PULL_STATE_REFRESHING}.
+         */
+        void onPullProgress(float overscroll, float dragPercent, float tensionPercent,
+                int state);
+    }
+
+    /**
+     * Classes that wish to be notified when a swipe gesture is ignored because the last
+     * refresh is more recent than the minimum refresh interval should implement this interface.
+     */
+    public interface OnRefreshThrottledListener {
+        /**
+         * Called instead of {@link OnRefreshListener#onRefresh()} when the content is still
+         * fresh.
+         *
+         * @param lastRefreshTime {@link SystemClock#elapsedRealtime()} at which the last
+         *                        refresh completed.
+         */
+        void onRefreshThrottled(long lastRefreshTime);
+    }
+
     /**
      * Classes that wish to be notified when the swipe gesture correctly
      * triggers a refresh should implement this interface.
@@ -1197,4 +2812,54 @@ public class SwipeHRefreshLayout extends FrameLayout implements NestedScrollingP
          */
         boolean canChildScrollLeft(@NonNull SwipeHRefreshLayout parent, @Nullable View child);
     }
+
+    /**
+     * Refresh state kept across configuration changes. Only the last refresh time is restored
+     * after the process was restarted.
+     */
+    static class SavedState extends BaseSavedState {
+        boolean refreshing;
+        // Offset of the resting indicator from its start position
+        int indicatorOffset;
+        float refreshProgress = -1;
+        long lastRefreshTime;
+        // PROCESS_TOKEN of the process that saved the state
+        long processToken;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        SavedState(Parcel source) {
+            super(source);
+            refreshing = source.readInt() != 0;
+            indicatorOffset = source.readInt();
+            refreshProgress = source.readFloat();
+            lastRefreshTime = source.readLong();
+            processToken = source.readLong();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(refreshing ? 1 : 0);
+            out.writeInt(indicatorOffset);
+            out.writeFloat(refreshProgress);
+            out.writeLong(lastRefreshTime);
+            out.writeLong(processToken);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR =
+                new Parcelable.Creator<SavedState>() {
+                    @Override
+                    public SavedState createFromParcel(Parcel source) {
+                        return new SavedState(source);
+                    }
+
+                    @Override
+                    public SavedState[] newArray(int size) {
+                        return new SavedState[size];
+                    }
+                };
+    }
 }
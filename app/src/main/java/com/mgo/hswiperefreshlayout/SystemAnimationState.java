@@ -0,0 +1,40 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import android.provider.Settings;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Reads the system settings that decide how much animation the refresh indicator may use.
+ */
+final class SystemAnimationState {
+
+    private SystemAnimationState() {
+    }
+
+    /**
+     * @return Whether battery saver is on.
+     */
+    static boolean isPowerSaveMode(@NonNull Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return false;
+        }
+        final PowerManager powerManager =
+                (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return powerManager != null && powerManager.isPowerSaveMode();
+    }
+
+    /**
+     * @return Whether the user turned animations off through the animator duration scale.
+     */
+    static boolean areAnimationsDisabled(@NonNull Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return false;
+        }
+        return Settings.Global.getFloat(context.getContentResolver(),
+                Settings.Global.ANIMATOR_DURATION_SCALE, 1f) == 0f;
+    }
+}
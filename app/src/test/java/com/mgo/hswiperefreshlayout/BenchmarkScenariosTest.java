@@ -0,0 +1,240 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.content.res.Configuration;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stress scenarios for {@link SwipeHRefreshLayout}, run headlessly against the benchmark
+ * {@link MainActivity}.
+ * <p>
+ * Every scenario prints its inflation or transition time, the average and worst time spent per
+ * frame and the bytes allocated on the main thread. The assertions only check that the
+ * scenario ran to completion, so numbers can be compared between runs without flaky limits.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BenchmarkScenariosTest {
+    private static final long FRAME_MILLIS = 16;
+    // Long enough for the batch window, the fake backend and the scale down animation
+    private static final int SETTLE_FRAMES = (int) ((MainActivity.REFRESH_DELAY + 500)
+            / FRAME_MILLIS);
+
+    @Test
+    public void inflateCarousels() {
+        final Sample sample = new Sample();
+        final ActivityController<MainActivity> controller =
+                Robolectric.buildActivity(MainActivity.class).setup();
+        sample.report("inflate", "activity with carousels");
+
+        assertTrue(controller.get().mCarousels.getChildCount() > 0);
+        controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void scrollCarousels() {
+        final ActivityController<MainActivity> controller =
+                Robolectric.buildActivity(MainActivity.class).setup();
+        final MainActivity activity = controller.get();
+
+        final FrameStats stats = runFrames(120, new Runnable() {
+            @Override
+            public void run() {
+                activity.mCarousels.scrollBy(0, 60);
+            }
+        });
+        stats.report("scroll", "vertical list of carousels");
+
+        assertTrue(activity.mCarousels.computeVerticalScrollOffset() > 0);
+        controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void pullThroughNestedScrollChain() {
+        final ActivityController<MainActivity> controller =
+                Robolectric.buildActivity(MainActivity.class).setup();
+        final MainActivity activity = controller.get();
+        final SwipeHRefreshLayout layout = firstCarousel(activity);
+        final View root = activity.getWindow().getDecorView();
+
+        // Touches go through the vertical list and the layout to the horizontal list
+        final int[] location = new int[2];
+        layout.getLocationInWindow(location);
+        final float y = location[1] + layout.getHeight() / 2f;
+        final float startX = location[0] + 10;
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(root, downTime, MotionEvent.ACTION_DOWN, startX, y);
+        final float[] x = {startX};
+        final FrameStats stats = runFrames(20, new Runnable() {
+            @Override
+            public void run() {
+                x[0] += 20;
+                dispatch(root, downTime, MotionEvent.ACTION_MOVE, x[0], y);
+            }
+        });
+        stats.report("pull", "drag through nested scroll chain");
+        dispatch(root, downTime, MotionEvent.ACTION_UP, x[0], y);
+        assertTrue(layout.isRefreshing());
+
+        runFrames(SETTLE_FRAMES, null).report("pull", "refresh and settle");
+        assertEquals(1, activity.mBatchCount);
+        assertFalse(layout.isRefreshing());
+        controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void simultaneousRefreshes() {
+        final ActivityController<MainActivity> controller =
+                Robolectric.buildActivity(MainActivity.class).setup();
+        final MainActivity activity = controller.get();
+
+        final Sample sample = new Sample();
+        activity.refreshAll();
+        sample.report("refresh all", "start");
+        assertTrue(countRefreshing(activity) > 1);
+
+        runFrames(SETTLE_FRAMES, null).report("refresh all", "refresh and settle");
+        assertEquals(1, activity.mBatchCount);
+        assertEquals(0, countRefreshing(activity));
+        controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void configurationChangeMidRefresh() {
+        final ActivityController<MainActivity> controller =
+                Robolectric.buildActivity(MainActivity.class).setup();
+        final MainActivity activity = controller.get();
+        activity.refreshAll();
+        runFrames(5, null);
+
+        final Configuration config =
+                new Configuration(activity.getResources().getConfiguration());
+        config.orientation = config.orientation == Configuration.ORIENTATION_LANDSCAPE
+                ? Configuration.ORIENTATION_PORTRAIT
+                : Configuration.ORIENTATION_LANDSCAPE;
+        final Sample sample = new Sample();
+        controller.configurationChange(config);
+        sample.report("configuration change", "recreate mid-refresh");
+
+        final MainActivity recreated = controller.get();
+        assertNotEquals(activity, recreated);
+        runFrames(SETTLE_FRAMES, null).report("configuration change", "frames after");
+        assertTrue(recreated.mCarousels.getChildCount() > 0);
+        controller.pause().stop().destroy();
+    }
+
+    private static SwipeHRefreshLayout firstCarousel(MainActivity activity) {
+        return activity.mCarousels.getChildAt(0).findViewById(R.id.refresh_layout);
+    }
+
+    private static int countRefreshing(MainActivity activity) {
+        int count = 0;
+        for (int i = 0; i < activity.mCarousels.getChildCount(); i++) {
+            final SwipeHRefreshLayout layout =
+                    activity.mCarousels.getChildAt(i).findViewById(R.id.refresh_layout);
+            if (layout.isRefreshing()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void dispatch(View root, long downTime, int action, float x, float y) {
+        final MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(),
+                action, x, y, 0);
+        root.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    /**
+     * Advances the main looper one frame at a time, running {@code beforeFrame} ahead of each.
+     */
+    private static FrameStats runFrames(int frames, Runnable beforeFrame) {
+        final FrameStats stats = new FrameStats();
+        for (int i = 0; i < frames; i++) {
+            final Sample sample = new Sample();
+            if (beforeFrame != null) {
+                beforeFrame.run();
+            }
+            ShadowLooper.idleMainLooper(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+            stats.add(sample);
+        }
+        return stats;
+    }
+
+    /**
+     * Wall time and main thread allocations since construction.
+     */
+    private static final class Sample {
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+        private final long mStartNanos = System.nanoTime();
+        private final long mStartBytes = allocatedBytes();
+
+        long elapsedNanos() {
+            return System.nanoTime() - mStartNanos;
+        }
+
+        long allocated() {
+            final long bytes = allocatedBytes();
+            return bytes < 0 || mStartBytes < 0 ? -1 : bytes - mStartBytes;
+        }
+
+        void report(String scenario, String step) {
+            System.out.println(String.format(Locale.US, "[benchmark] %s / %s: %.2f ms, %d bytes",
+                    scenario, step, elapsedNanos() / 1e6, allocated()));
+        }
+
+        /**
+         * @return Bytes allocated by this thread so far, or -1 if the JVM does not track them.
+         */
+        private static long allocatedBytes() {
+            if (THREADS instanceof com.sun.management.ThreadMXBean) {
+                return ((com.sun.management.ThreadMXBean) THREADS)
+                        .getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            return -1;
+        }
+    }
+
+    private static final class FrameStats {
+        private int mFrames;
+        private long mTotalNanos;
+        private long mMaxNanos;
+        private long mTotalBytes;
+
+        void add(Sample sample) {
+            final long nanos = sample.elapsedNanos();
+            mFrames++;
+            mTotalNanos += nanos;
+            mMaxNanos = Math.max(mMaxNanos, nanos);
+            mTotalBytes += Math.max(0, sample.allocated());
+        }
+
+        void report(String scenario, String step) {
+            System.out.println(String.format(Locale.US,
+                    "[benchmark] %s / %s: %d frames, %.2f ms avg, %.2f ms max, %d bytes/frame",
+                    scenario, step, mFrames, mTotalNanos / 1e6 / mFrames, mMaxNanos / 1e6,
+                    mTotalBytes / mFrames));
+        }
+    }
+}
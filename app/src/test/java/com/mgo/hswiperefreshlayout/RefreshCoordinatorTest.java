@@ -0,0 +1,87 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import com.mgo.hswiperefreshlayout.SwipeHRefreshLayoutStateTest.RefreshActivity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mgo.hswiperefreshlayout.SwipeHRefreshLayoutStateTest.idle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Batching refreshes of layouts that join a {@link RefreshCoordinator}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RefreshCoordinatorTest {
+    private static final String GROUP = "group";
+
+    private final ArrayList<List<SwipeHRefreshLayout>> mBatches = new ArrayList<>();
+    private RefreshCoordinator mCoordinator;
+    private ActivityController<RefreshActivity> mController;
+    private SwipeHRefreshLayout mLayout;
+
+    @Before
+    public void setUp() {
+        RefreshActivity.sRefreshCount = 0;
+        RefreshActivity.sRefreshOnCreate = false;
+        mCoordinator = new RefreshCoordinator(new RefreshCoordinator.OnBatchRefreshListener() {
+            @Override
+            public void onBatchRefresh(@NonNull String groupKey,
+                    @NonNull List<SwipeHRefreshLayout> layouts) {
+                mBatches.add(layouts);
+            }
+        });
+        mController = Robolectric.buildActivity(RefreshActivity.class).setup();
+        mLayout = mController.get().mLayout;
+        mLayout.setRefreshCoordinator(mCoordinator, GROUP);
+    }
+
+    @After
+    public void tearDown() {
+        mController.pause().stop().destroy();
+    }
+
+    @Test
+    public void refreshAllDeliversOneBatch() {
+        mCoordinator.refreshAll(GROUP);
+        assertTrue(mLayout.isRefreshing());
+        idle(500);
+
+        assertEquals(1, mBatches.size());
+        assertEquals(1, mBatches.get(0).size());
+        assertSame(mLayout, mBatches.get(0).get(0));
+        assertTrue(mLayout.isRefreshing());
+        assertEquals(0, RefreshActivity.sRefreshCount);
+    }
+
+    @Test
+    public void detachDuringBatchWindowEndsRefresh() {
+        mCoordinator.refreshAll(GROUP);
+        idle(16);
+
+        ((ViewGroup) mLayout.getParent()).removeView(mLayout);
+        idle(500);
+
+        assertEquals(0, mBatches.size());
+        assertFalse(mLayout.isRefreshing());
+        // Nothing was refreshed
+        assertEquals(0, mLayout.getLastRefreshTime());
+    }
+}
@@ -0,0 +1,194 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.view.View;
+
+import androidx.core.view.ViewCompat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import com.mgo.hswiperefreshlayout.SwipeHRefreshLayoutStateTest.RefreshActivity;
+
+import static com.mgo.hswiperefreshlayout.SwipeHRefreshLayoutStateTest.idle;
+import static com.mgo.hswiperefreshlayout.SwipeHRefreshLayoutStateTest.restingOffset;
+import static com.mgo.hswiperefreshlayout.SwipeHRefreshLayoutStateTest.swipe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * State transitions of a {@link SwipeHRefreshLayout} when a gesture or a refresh starts while
+ * the indicator is still returning.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SwipeHRefreshLayoutGestureTest {
+    private ActivityController<RefreshActivity> mController;
+    private SwipeHRefreshLayout mLayout;
+    private View mTarget;
+
+    @Before
+    public void setUp() {
+        RefreshActivity.sRefreshCount = 0;
+        RefreshActivity.sRefreshOnCreate = false;
+        mController = Robolectric.buildActivity(RefreshActivity.class).setup();
+        mLayout = mController.get().mLayout;
+        mTarget = mLayout.getChildAt(0) instanceof SwipeCircleImageView
+                ? mLayout.getChildAt(1)
+                : mLayout.getChildAt(0);
+        mLayout.setContentFollowEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        mController.pause().stop().destroy();
+    }
+
+    @Test
+    public void transitionTable() {
+        assertFalse(mLayout.setState(SwipeHRefreshLayout.STATE_RETURNING));
+        assertTrue(mLayout.setState(SwipeHRefreshLayout.STATE_DRAGGING));
+        assertFalse(mLayout.setState(SwipeHRefreshLayout.STATE_NESTED_SCROLLING));
+        assertTrue(mLayout.setState(SwipeHRefreshLayout.STATE_RETURNING));
+        assertTrue(mLayout.setState(SwipeHRefreshLayout.STATE_NESTED_SCROLLING));
+        assertFalse(mLayout.setState(SwipeHRefreshLayout.STATE_DRAGGING));
+        assertTrue(mLayout.setState(SwipeHRefreshLayout.STATE_REFRESHING));
+        assertFalse(mLayout.setState(SwipeHRefreshLayout.STATE_DRAGGING));
+        assertFalse(mLayout.setState(SwipeHRefreshLayout.STATE_NESTED_SCROLLING));
+        assertTrue(mLayout.setState(SwipeHRefreshLayout.STATE_RETURNING));
+        assertTrue(mLayout.setState(SwipeHRefreshLayout.STATE_IDLE));
+        assertEquals(SwipeHRefreshLayout.STATE_IDLE, mLayout.mState);
+    }
+
+    @Test
+    public void swipeDuringReturn() {
+        // Too short to refresh
+        swipe(mLayout, 3);
+        idle(16);
+        assertEquals(SwipeHRefreshLayout.STATE_RETURNING, mLayout.mState);
+
+        swipe(mLayout);
+        idle(1000);
+
+        assertTrue(mLayout.isRefreshing());
+        assertEquals(View.VISIBLE, mLayout.mCircleView.getVisibility());
+        assertEquals(1f, mLayout.mCircleView.getScaleX(), 0f);
+        assertEquals(restingOffset(mLayout), mLayout.mCircleView.getLeft());
+        assertEquals(1, RefreshActivity.sRefreshCount);
+    }
+
+    @Test
+    public void tapDuringReturn() {
+        endRefresh();
+
+        startNestedScroll();
+        idle(16);
+        mLayout.onStopNestedScroll(mTarget);
+        assertEquals(SwipeHRefreshLayout.STATE_RETURNING, mLayout.mState);
+        idle(500);
+
+        assertSettled();
+    }
+
+    @Test
+    public void returnEndsDuringNestedScroll() {
+        endRefresh();
+
+        startNestedScroll();
+        idle(500);
+        mLayout.onStopNestedScroll(mTarget);
+
+        assertSettled();
+    }
+
+    @Test
+    public void nestedPullDuringReturn() {
+        endRefresh();
+
+        startNestedScroll();
+        mLayout.onNestedScroll(mTarget, 0, 0, -200, 0);
+        assertNull(mLayout.mCircleView.getAnimation());
+        idle(500);
+        // Not hidden by the interrupted return
+        assertEquals(SwipeHRefreshLayout.STATE_NESTED_SCROLLING, mLayout.mState);
+        assertEquals(View.VISIBLE, mLayout.mCircleView.getVisibility());
+
+        mLayout.onStopNestedScroll(mTarget);
+        idle(1000);
+
+        assertTrue(mLayout.isRefreshing());
+        assertEquals(restingOffset(mLayout), mLayout.mCircleView.getLeft());
+        assertEquals(1, RefreshActivity.sRefreshCount);
+    }
+
+    @Test
+    public void refreshDuringReturnStartsIndeterminate() {
+        mLayout.setRefreshing(true);
+        idle(1000);
+        mLayout.setRefreshProgress(.5f);
+        idle(16);
+        assertEquals(.5f, mLayout.getRefreshProgress(), 0f);
+
+        // Published but not applied before the refresh ends
+        mLayout.setRefreshProgress(.8f);
+        mLayout.setRefreshing(false);
+        mLayout.setRefreshing(true);
+        idle(1000);
+
+        assertTrue(mLayout.isRefreshing());
+        assertTrue(mLayout.getRefreshProgress() < 0);
+    }
+
+    @Test
+    public void targetLayerOnlyOnceNestedScrollPulls() {
+        mLayout.setTargetLayerEnabled(true, false);
+
+        startNestedScroll();
+        assertEquals(View.LAYER_TYPE_NONE, mTarget.getLayerType());
+
+        mLayout.onNestedScroll(mTarget, 0, 0, -20, 0);
+        assertEquals(View.LAYER_TYPE_HARDWARE, mTarget.getLayerType());
+
+        final int[] consumed = new int[2];
+        mLayout.onNestedPreScroll(mTarget, 40, 0, consumed);
+        assertEquals(View.LAYER_TYPE_NONE, mTarget.getLayerType());
+
+        mLayout.onStopNestedScroll(mTarget);
+        assertEquals(SwipeHRefreshLayout.STATE_IDLE, mLayout.mState);
+    }
+
+    /**
+     * Shows a refresh and ends it, leaving the indicator scaling down.
+     */
+    private void endRefresh() {
+        mLayout.setRefreshing(true);
+        idle(1000);
+        mLayout.setRefreshing(false);
+        idle(16);
+        assertEquals(SwipeHRefreshLayout.STATE_RETURNING, mLayout.mState);
+    }
+
+    /**
+     * Starts a nested scroll as a scrolling child does on every touch.
+     */
+    private void startNestedScroll() {
+        assertTrue(mLayout.onStartNestedScroll(mTarget, mTarget,
+                ViewCompat.SCROLL_AXIS_HORIZONTAL));
+        mLayout.onNestedScrollAccepted(mTarget, mTarget, ViewCompat.SCROLL_AXIS_HORIZONTAL);
+        assertEquals(SwipeHRefreshLayout.STATE_NESTED_SCROLLING, mLayout.mState);
+    }
+
+    private void assertSettled() {
+        assertEquals(SwipeHRefreshLayout.STATE_IDLE, mLayout.mState);
+        assertEquals(View.GONE, mLayout.mCircleView.getVisibility());
+        assertEquals(0f, mTarget.getTranslationX(), 0f);
+        assertEquals(0, RefreshActivity.sRefreshCount);
+    }
+}
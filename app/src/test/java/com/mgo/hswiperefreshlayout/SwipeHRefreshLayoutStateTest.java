@@ -0,0 +1,209 @@
+package com.mgo.hswiperefreshlayout;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.SystemClock;
+import android.view.AbsSavedState;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Saving and restoring the refresh state of a {@link SwipeHRefreshLayout}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SwipeHRefreshLayoutStateTest {
+
+    @Before
+    public void setUp() {
+        RefreshActivity.sRefreshCount = 0;
+        RefreshActivity.sRefreshOnCreate = false;
+    }
+
+    @Test
+    public void refreshSurvivesRecreation() {
+        final ActivityController<RefreshActivity> controller =
+                Robolectric.buildActivity(RefreshActivity.class).setup();
+        final SwipeHRefreshLayout layout = controller.get().mLayout;
+        swipe(layout);
+        idle(1000);
+        assertTrue(layout.isRefreshing());
+        final int refreshCount = RefreshActivity.sRefreshCount;
+
+        controller.recreate();
+        idle(50);
+
+        final SwipeHRefreshLayout restored = controller.get().mLayout;
+        assertNotSame(layout, restored);
+        assertTrue(restored.isRefreshing());
+        assertEquals(restingOffset(restored), restored.mCircleView.getLeft());
+        assertEquals(refreshCount, RefreshActivity.sRefreshCount);
+        controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void restoreReplacesPendingIndicator() {
+        final ActivityController<RefreshActivity> controller =
+                Robolectric.buildActivity(RefreshActivity.class).setup();
+        controller.get().mLayout.setRefreshing(true);
+        idle(1000);
+
+        // The recreated screen asks for the indicator again from onCreate()
+        RefreshActivity.sRefreshOnCreate = true;
+        controller.recreate();
+        idle(50);
+
+        final SwipeHRefreshLayout restored = controller.get().mLayout;
+        assertTrue(restored.isRefreshing());
+        // Not scaled in again
+        assertNull(restored.mCircleView.getAnimation());
+        assertEquals(1f, restored.mCircleView.getScaleX(), 0f);
+        assertEquals(restingOffset(restored), restored.mCircleView.getLeft());
+        assertEquals(0, RefreshActivity.sRefreshCount);
+        controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void savedStateParcelRoundTrip() {
+        final SwipeHRefreshLayout.SavedState state =
+                new SwipeHRefreshLayout.SavedState(AbsSavedState.EMPTY_STATE);
+        state.refreshing = true;
+        state.indicatorOffset = 42;
+        state.refreshProgress = .5f;
+        state.lastRefreshTime = 1234;
+        state.processToken = SwipeHRefreshLayout.PROCESS_TOKEN;
+
+        final Parcel parcel = Parcel.obtain();
+        state.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        final SwipeHRefreshLayout.SavedState copy =
+                SwipeHRefreshLayout.SavedState.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+
+        assertTrue(copy.refreshing);
+        assertEquals(42, copy.indicatorOffset);
+        assertEquals(.5f, copy.refreshProgress, 0f);
+        assertEquals(1234, copy.lastRefreshTime);
+        assertEquals(SwipeHRefreshLayout.PROCESS_TOKEN, copy.processToken);
+    }
+
+    @Test
+    public void refreshFromAnotherProcessIsNotRestored() {
+        final ActivityController<RefreshActivity> controller =
+                Robolectric.buildActivity(RefreshActivity.class).setup();
+        final SwipeHRefreshLayout layout = controller.get().mLayout;
+        final SwipeHRefreshLayout.SavedState state =
+                new SwipeHRefreshLayout.SavedState(AbsSavedState.EMPTY_STATE);
+        state.refreshing = true;
+        state.lastRefreshTime = SystemClock.elapsedRealtime();
+        state.processToken = SwipeHRefreshLayout.PROCESS_TOKEN + 1;
+
+        layout.onRestoreInstanceState(state);
+
+        assertFalse(layout.isRefreshing());
+        assertEquals(state.lastRefreshTime, layout.getLastRefreshTime());
+        controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void refreshTimeFromBeforeRebootIsIgnored() {
+        final ActivityController<RefreshActivity> controller =
+                Robolectric.buildActivity(RefreshActivity.class).setup();
+        final SwipeHRefreshLayout layout = controller.get().mLayout;
+        final SwipeHRefreshLayout.SavedState state =
+                new SwipeHRefreshLayout.SavedState(AbsSavedState.EMPTY_STATE);
+        state.lastRefreshTime = SystemClock.elapsedRealtime() + 60000;
+        state.processToken = SwipeHRefreshLayout.PROCESS_TOKEN;
+
+        layout.onRestoreInstanceState(state);
+
+        assertEquals(0, layout.getLastRefreshTime());
+        controller.pause().stop().destroy();
+    }
+
+    static int restingOffset(SwipeHRefreshLayout layout) {
+        return layout.getProgressViewStartOffset() + layout.getProgressViewEndOffset();
+    }
+
+    /**
+     * Pulls from the left edge across most of the layout and lets go.
+     */
+    static void swipe(SwipeHRefreshLayout layout) {
+        swipe(layout, 15);
+    }
+
+    /**
+     * Pulls from the left edge by 20 pixels per frame and lets go.
+     */
+    static void swipe(SwipeHRefreshLayout layout, int moves) {
+        final float y = layout.getHeight() / 2f;
+        final long downTime = SystemClock.uptimeMillis();
+        float x = 10;
+        dispatch(layout, downTime, MotionEvent.ACTION_DOWN, x, y);
+        for (int i = 0; i < moves; i++) {
+            x += 20;
+            dispatch(layout, downTime, MotionEvent.ACTION_MOVE, x, y);
+            idle(16);
+        }
+        dispatch(layout, downTime, MotionEvent.ACTION_UP, x, y);
+    }
+
+    static void dispatch(View view, long downTime, int action, float x, float y) {
+        final MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(),
+                action, x, y, 0);
+        view.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    static void idle(long millis) {
+        ShadowLooper.idleMainLooper(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Screen holding a single refresh layout with an id, counting refreshes across instances.
+     */
+    public static class RefreshActivity extends Activity {
+        static int sRefreshCount;
+        static boolean sRefreshOnCreate;
+
+        SwipeHRefreshLayout mLayout;
+
+        @Override
+        protected void onCreate(Bundle savedInstanceState) {
+            super.onCreate(savedInstanceState);
+            mLayout = new SwipeHRefreshLayout(this);
+            mLayout.setId(R.id.refresh_layout);
+            mLayout.addView(new View(this), new ViewGroup.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+            mLayout.setOnRefreshListener(new SwipeHRefreshLayout.OnRefreshListener() {
+                @Override
+                public void onRefresh() {
+                    sRefreshCount++;
+                }
+            });
+            if (sRefreshOnCreate) {
+                mLayout.setRefreshing(true);
+            }
+            setContentView(mLayout);
+        }
+    }
+}